@@ -0,0 +1,64 @@
+package com.cryptovault.benchmarks;
+
+import com.cryptovault.dtos.EncryptedData;
+import com.cryptovault.utils.CryptoUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKey;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-shot AES-256-GCM through the byte[] API of {@link CryptoUtils}, from 1 KB up to the 50 MB upload limit.
+ * Each encryption draws a fresh IV, as the service does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AesGcmBenchmark {
+
+    @Param({"1024", "65536", "1048576", "52428800"})
+    private int payloadSize;
+
+    private final CryptoUtils cryptoUtils = new CryptoUtils();
+    private SecretKey key;
+    private byte[] plaintext;
+    private byte[] ciphertext;
+    private byte[] iv;
+    private byte[] tag;
+
+    @Setup
+    public void setUp() throws Exception {
+        key = cryptoUtils.generateAesKey();
+        plaintext = new byte[payloadSize];
+        new Random(42).nextBytes(plaintext);
+
+        EncryptedData encrypted = cryptoUtils.encryptAES(plaintext, key);
+        ciphertext = encrypted.getCiphertext();
+        iv = encrypted.getIv();
+        tag = encrypted.getTag();
+    }
+
+    @Benchmark
+    public EncryptedData encryptAES() throws Exception {
+        return cryptoUtils.encryptAES(plaintext, key);
+    }
+
+    @Benchmark
+    public byte[] decryptAES() throws Exception {
+        return cryptoUtils.decryptAES(ciphertext, iv, tag, key);
+    }
+}
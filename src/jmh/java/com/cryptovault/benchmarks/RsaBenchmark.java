@@ -0,0 +1,78 @@
+package com.cryptovault.benchmarks;
+
+import com.cryptovault.models.Key;
+import com.cryptovault.utils.CryptoUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKey;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The RSA side of envelope encryption: wrapping and unwrapping a session key, key pair generation
+ * and parsing stored keys, for both supported key sizes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RsaBenchmark {
+
+    @Param({"RSA_2048_OAEP", "RSA_3072_OAEP"})
+    private Key.Algorithm algorithm;
+
+    private final CryptoUtils cryptoUtils = new CryptoUtils();
+    private KeyPair keyPair;
+    private byte[] sessionKey;
+    private byte[] wrappedKey;
+    private byte[] encodedPublicKey;
+    private byte[] encodedPrivateKey;
+
+    @Setup
+    public void setUp() throws Exception {
+        keyPair = cryptoUtils.generateRsaKeyPair(algorithm.getKeySize());
+        sessionKey = cryptoUtils.generateAesKey().getEncoded();
+        wrappedKey = cryptoUtils.wrapKey(sessionKey, keyPair.getPublic());
+        encodedPublicKey = keyPair.getPublic().getEncoded();
+        encodedPrivateKey = keyPair.getPrivate().getEncoded();
+    }
+
+    @Benchmark
+    public byte[] wrapKey() throws Exception {
+        return cryptoUtils.wrapKey(sessionKey, keyPair.getPublic());
+    }
+
+    @Benchmark
+    public SecretKey unwrapKey() throws Exception {
+        return cryptoUtils.unwrapKey(wrappedKey, keyPair.getPrivate());
+    }
+
+    @Benchmark
+    public KeyPair generateRsaKeyPair() throws Exception {
+        return cryptoUtils.generateRsaKeyPair(algorithm.getKeySize());
+    }
+
+    @Benchmark
+    public PublicKey getPublicKeyFromBytes() throws Exception {
+        return cryptoUtils.getPublicKeyFromBytes(encodedPublicKey);
+    }
+
+    @Benchmark
+    public PrivateKey getPrivateKeyFromBytes() throws Exception {
+        return cryptoUtils.getPrivateKeyFromBytes(encodedPrivateKey);
+    }
+}
@@ -0,0 +1,680 @@
+package com.cryptovault.loadtest;
+
+import com.cryptovault.CryptovaultApplication;
+import com.cryptovault.models.Key;
+import com.cryptovault.services.KeyService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Full-stack load generator: boots the application in this JVM on the {@code dev} profile (in-memory
+ * H2, a temporary storage directory) and drives concurrent {@code POST /documents/encrypt} and
+ * {@code GET /documents/decrypt/{id}} traffic against it over HTTP.
+ * <p>
+ * After the run it reports throughput and latency percentiles per operation and file size, the heap
+ * high-water mark and the bytes written to storage. Only requests started after the warm-up count.
+ * The client runs in the same JVM, so it reuses its payload buffers and drains responses into a
+ * scratch buffer to keep its own share of the heap figures small. See docs/load-testing.md.
+ */
+public final class LoadTest {
+
+    private static final String BOUNDARY = "cryptovault-loadtest-boundary";
+    private static final int DECRYPT_POOL_SIZE = 4096;
+    private static final long KIB = 1024;
+    private static final long MIB = 1024 * KIB;
+
+    private static final int ENCRYPT = 0;
+    private static final int DECRYPT = 1;
+    private static final String[] OPERATIONS = {"encrypt", "decrypt"};
+
+    private final Options options;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private URI baseUri;
+    private long keyId;
+    private byte[][] payloads;
+
+    // the most recently encrypted documents, which the decrypt requests pick from
+    private final AtomicReferenceArray<StoredDocument> documents = new AtomicReferenceArray<>(DECRYPT_POOL_SIZE);
+    private final AtomicInteger documentCount = new AtomicInteger();
+
+    private final AtomicReference<String> firstError = new AtomicReference<>();
+
+    private record StoredDocument(long id, long size) {
+    }
+
+    private LoadTest(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(Options.USAGE);
+            System.exit(2);
+            return;
+        }
+        int exitCode = new LoadTest(options).run();
+        System.exit(exitCode);
+    }
+
+    private int run() throws Exception {
+        boolean temporaryStorage = options.storagePath == null;
+        Path storage = temporaryStorage
+                ? Files.createTempDirectory("cryptovault-loadtest")
+                : Files.createDirectories(options.storagePath);
+
+        ConfigurableApplicationContext context = SpringApplication.run(CryptovaultApplication.class, bootArgs(storage));
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            baseUri = URI.create("http://localhost:" + port);
+            keyId = options.keyId != null
+                    ? options.keyId
+                    : context.getBean(KeyService.class).generateAndSaveRsaKey(options.userId, options.algorithm).getId();
+            payloads = randomPayloads();
+
+            Result result = drive(storage);
+            System.out.println(result.report());
+            return result.errors() > 0 ? 1 : 0;
+        } finally {
+            context.close();
+            if (temporaryStorage && !options.keepStorage) {
+                deleteRecursively(storage);
+            }
+        }
+    }
+
+    private String[] bootArgs(Path storage) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.profiles.active=dev",
+                "--server.port=0",
+                "--cryptovault.storage.path=" + storage.toAbsolutePath(),
+                "--spring.main.banner-mode=off",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.cryptovault=WARN",
+                "--logging.level.org.springframework=WARN",
+                "--logging.level.org.hibernate.SQL=WARN"));
+        // later arguments win, so application properties passed to the harness override the defaults above
+        args.addAll(options.applicationArgs);
+        return args.toArray(String[]::new);
+    }
+
+    private byte[][] randomPayloads() {
+        Random random = new Random(42);
+        byte[][] result = new byte[options.sizes.length][];
+        for (int i = 0; i < result.length; i++) {
+            // random bytes, so neither side gets away with compressible data
+            result[i] = new byte[Math.toIntExact(options.sizes[i])];
+            random.nextBytes(result[i]);
+        }
+        return result;
+    }
+
+    private Result drive(Path storage) throws Exception {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        HeapSampler heapSampler = new HeapSampler(memory);
+
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup.toNanos();
+        long until = measureFrom + options.duration.toNanos();
+
+        ExecutorService workers = Executors.newFixedThreadPool(options.concurrency, daemonThreads("loadtest-worker-"));
+        List<Future<Worker>> futures = new ArrayList<>();
+        for (int i = 0; i < options.concurrency; i++) {
+            Worker worker = new Worker(measureFrom, until);
+            futures.add(workers.submit(() -> {
+                worker.run();
+                return worker;
+            }));
+        }
+
+        Thread sampler = new Thread(heapSampler, "loadtest-heap-sampler");
+        sampler.setDaemon(true);
+        sampler.start();
+
+        // the warm-up is over once the first worker sees measureFrom; reset the baselines at that point
+        sleepUntil(measureFrom);
+        heapSampler.reset();
+        StorageUsage storageBefore = StorageUsage.of(storage);
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+
+        List<Worker> finished = new ArrayList<>();
+        for (Future<Worker> future : futures) {
+            finished.add(future.get());
+        }
+        long measuredNanos = System.nanoTime() - measureFrom;
+        workers.shutdown();
+        heapSampler.stop();
+        sampler.join();
+
+        return new Result(options, keyId, finished, measuredNanos, heapSampler,
+                memory.getHeapMemoryUsage(),
+                StorageUsage.of(storage).minus(storageBefore),
+                gcCount() - gcCountBefore, gcMillis() - gcMillisBefore,
+                firstError.get());
+    }
+
+    private final class Worker {
+        private final long measureFrom;
+        private final long until;
+        private final Latencies[][] latencies = new Latencies[OPERATIONS.length][options.sizes.length];
+        private final long[] errors = new long[OPERATIONS.length];
+        private final long[] bytes = new long[OPERATIONS.length];
+        private final byte[] drain = new byte[64 * 1024];
+
+        Worker(long measureFrom, long until) {
+            this.measureFrom = measureFrom;
+            this.until = until;
+            for (Latencies[] perOperation : latencies) {
+                for (int i = 0; i < perOperation.length; i++) {
+                    perOperation[i] = new Latencies();
+                }
+            }
+        }
+
+        void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long now;
+            while ((now = System.nanoTime()) < until) {
+                StoredDocument document = null;
+                int stored = documentCount.get();
+                if (stored > 0 && random.nextDouble() < options.readRatio) {
+                    // null while the encrypt that claimed the slot is still in flight; encrypt instead
+                    document = documents.get(random.nextInt(Math.min(stored, DECRYPT_POOL_SIZE)));
+                }
+                int operation = document != null ? DECRYPT : ENCRYPT;
+                int sizeIndex;
+                long transferred;
+                try {
+                    if (document != null) {
+                        sizeIndex = sizeIndexOf(document.size());
+                        transferred = decrypt(document.id(), document.size());
+                    } else {
+                        sizeIndex = options.pickSize(random);
+                        transferred = encrypt(sizeIndex);
+                    }
+                } catch (Exception e) {
+                    if (now >= measureFrom) {
+                        errors[operation]++;
+                    }
+                    firstError.compareAndSet(null, OPERATIONS[operation] + ": " + e);
+                    continue;
+                }
+                long elapsed = System.nanoTime() - now;
+                if (now >= measureFrom) {
+                    latencies[operation][sizeIndex].add(elapsed);
+                    bytes[operation] += transferred;
+                }
+            }
+        }
+
+        private long encrypt(int sizeIndex) throws IOException, InterruptedException {
+            byte[] payload = payloads[sizeIndex];
+            byte[] head = ("--" + BOUNDARY + "\r\n"
+                    + "Content-Disposition: form-data; name=\"keyId\"\r\n\r\n" + keyId + "\r\n"
+                    + "--" + BOUNDARY + "\r\n"
+                    + "Content-Disposition: form-data; name=\"file\"; filename=\"loadtest-" + payload.length + ".bin\"\r\n"
+                    + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+            byte[] tail = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+
+            HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/documents/encrypt"))
+                    .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                    .POST(HttpRequest.BodyPublishers.ofByteArrays(List.of(head, payload, tail)))
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("HTTP " + response.statusCode() + " " + response.body());
+            }
+            JsonNode body = objectMapper.readTree(response.body());
+            int slot = documentCount.getAndIncrement() % DECRYPT_POOL_SIZE;
+            documents.set(slot, new StoredDocument(body.get("document_id").asLong(), payload.length));
+            return payload.length;
+        }
+
+        private long decrypt(long documentId, long expectedSize) throws IOException, InterruptedException {
+            HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/documents/decrypt/" + documentId))
+                    .GET()
+                    .build();
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            long read = 0;
+            try (InputStream body = response.body()) {
+                int n;
+                while ((n = body.read(drain)) != -1) {
+                    read += n;
+                }
+            }
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("HTTP " + response.statusCode() + " for document " + documentId);
+            }
+            if (read != expectedSize) {
+                throw new IllegalStateException("document " + documentId + " decrypted to " + read
+                        + " bytes, expected " + expectedSize);
+            }
+            return read;
+        }
+    }
+
+    private int sizeIndexOf(long size) {
+        for (int i = 0; i < options.sizes.length; i++) {
+            if (options.sizes[i] == size) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("unknown size " + size);
+    }
+
+    /**
+     * Latencies of one operation and size, in nanoseconds. Each worker keeps its own, merged at the end.
+     */
+    private static final class Latencies {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        static long[] merge(List<Latencies> parts) {
+            long[] merged = new long[parts.stream().mapToInt(part -> part.size).sum()];
+            int offset = 0;
+            for (Latencies part : parts) {
+                System.arraycopy(part.values, 0, merged, offset, part.size);
+                offset += part.size;
+            }
+            Arrays.sort(merged);
+            return merged;
+        }
+    }
+
+    /**
+     * Polls the heap usage, since the per-pool peaks the JVM tracks cannot be combined into one figure.
+     */
+    private static final class HeapSampler implements Runnable {
+        private static final long INTERVAL_MILLIS = 20;
+
+        private final MemoryMXBean memory;
+        private volatile boolean running = true;
+        private volatile long maxUsed;
+        private volatile long maxCommitted;
+
+        HeapSampler(MemoryMXBean memory) {
+            this.memory = memory;
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                MemoryUsage heap = memory.getHeapMemoryUsage();
+                maxUsed = Math.max(maxUsed, heap.getUsed());
+                maxCommitted = Math.max(maxCommitted, heap.getCommitted());
+                try {
+                    Thread.sleep(INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        void reset() {
+            maxUsed = 0;
+            maxCommitted = 0;
+        }
+
+        void stop() {
+            running = false;
+        }
+    }
+
+    private record StorageUsage(long files, long bytes) {
+
+        static StorageUsage of(Path root) throws IOException {
+            long files = 0;
+            long bytes = 0;
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : (Iterable<Path>) paths::iterator) {
+                    if (Files.isRegularFile(path)) {
+                        try {
+                            bytes += Files.size(path);
+                            files++;
+                        } catch (IOException e) {
+                            // removed while walking, e.g. a compacted segment
+                        }
+                    }
+                }
+            }
+            return new StorageUsage(files, bytes);
+        }
+
+        StorageUsage minus(StorageUsage before) {
+            return new StorageUsage(files - before.files, bytes - before.bytes);
+        }
+    }
+
+    private record Result(Options options, long keyId, List<Worker> workers, long measuredNanos,
+                          HeapSampler heap, MemoryUsage heapAtEnd, StorageUsage written,
+                          long gcCount, long gcMillis, String firstError) {
+
+        long errors() {
+            return workers.stream().flatMapToLong(worker -> Arrays.stream(worker.errors)).sum();
+        }
+
+        String report() {
+            double seconds = measuredNanos / 1e9;
+            StringBuilder out = new StringBuilder();
+            out.append(String.format(Locale.ROOT, "%nCryptoVault load test: %d workers, %.1f s measured after %d s warm-up, "
+                            + "read ratio %.2f, key %d%n", options.concurrency, seconds, options.warmup.toSeconds(),
+                    options.readRatio, keyId));
+            out.append("Size mix: ").append(options.describeMix()).append("\n\n");
+            out.append(String.format(Locale.ROOT, "%-20s %9s %7s %9s %9s %9s %9s %9s %9s %9s%n",
+                    "operation", "count", "errors", "ops/s", "MiB/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+
+            long totalCount = 0;
+            for (int operation = 0; operation < OPERATIONS.length; operation++) {
+                List<long[]> perSize = new ArrayList<>();
+                for (int sizeIndex = 0; sizeIndex < options.sizes.length; sizeIndex++) {
+                    int op = operation;
+                    int s = sizeIndex;
+                    long[] latencies = Latencies.merge(workers.stream().map(worker -> worker.latencies[op][s]).toList());
+                    perSize.add(latencies);
+                    if (latencies.length > 0) {
+                        out.append(row(OPERATIONS[operation] + " " + formatSize(options.sizes[sizeIndex]), latencies,
+                                -1, (double) latencies.length * options.sizes[sizeIndex], seconds));
+                    }
+                }
+                int op = operation;
+                long[] all = perSize.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+                long errors = workers.stream().mapToLong(worker -> worker.errors[op]).sum();
+                long bytes = workers.stream().mapToLong(worker -> worker.bytes[op]).sum();
+                out.append(row(OPERATIONS[operation] + " (all)", all, errors, bytes, seconds));
+                totalCount += all.length;
+            }
+
+            out.append(String.format(Locale.ROOT, "%nThroughput: %.1f requests/s%n", totalCount / seconds));
+            long maxHeap = Runtime.getRuntime().maxMemory();
+            out.append(String.format(Locale.ROOT, "Heap high-water mark: %s used, %s committed (max %s, sampled every %d ms)%n",
+                    formatBytes(heap.maxUsed), formatBytes(heap.maxCommitted),
+                    maxHeap == Long.MAX_VALUE ? "unbounded" : formatBytes(maxHeap), HeapSampler.INTERVAL_MILLIS));
+            out.append(String.format(Locale.ROOT, "GC: %d collections, %d ms%n", gcCount, gcMillis));
+            long uploaded = workers.stream().mapToLong(worker -> worker.bytes[ENCRYPT]).sum();
+            out.append(String.format(Locale.ROOT, "Bytes written to storage: %s in %d new files (%s of plaintext uploaded)%n",
+                    formatBytes(written.bytes), written.files, formatBytes(uploaded)));
+            if (firstError != null) {
+                out.append("First error: ").append(firstError).append('\n');
+            }
+            return out.toString();
+        }
+
+        private static String row(String label, long[] sorted, long errors, double bytes, double seconds) {
+            return String.format(Locale.ROOT, "%-20s %9d %7s %9.1f %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    label, sorted.length, errors < 0 ? "" : Long.toString(errors),
+                    sorted.length / seconds, bytes / MIB / seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    percentile(sorted, 0.999), sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    static final class Options {
+        static final String USAGE = """
+                Options (all optional):
+                  --concurrency=16          concurrent client threads
+                  --duration=60s            measured run time (s, m or ms suffix)
+                  --warmup=10s              run time before measuring starts
+                  --sizes=1KiB:50,64KiB:30,1MiB:15,16MiB:5
+                                            file sizes and their relative weights
+                  --read-ratio=0.5          share of requests that are decrypts
+                  --algorithm=RSA_3072_OAEP algorithm of the RSA key generated for the run
+                  --key-id=<id>             use an existing key instead of generating one
+                  --user-id=1               owner of the generated key (dev seeds users 1-3)
+                  --storage=<dir>           storage directory, a temporary one by default
+                  --keep-storage            keep the temporary storage directory
+                Any other --name=value with a dotted name, e.g. --cryptovault.storage.packed.enabled=true,
+                is passed to the application.""";
+
+        int concurrency = 16;
+        Duration duration = Duration.ofSeconds(60);
+        Duration warmup = Duration.ofSeconds(10);
+        long[] sizes;
+        int[] weights;
+        double readRatio = 0.5;
+        Key.Algorithm algorithm = Key.Algorithm.RSA_3072_OAEP;
+        Long keyId;
+        long userId = 1;
+        Path storagePath;
+        boolean keepStorage;
+        final List<String> applicationArgs = new ArrayList<>();
+
+        private int totalWeight;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            options.parseSizes("1KiB:50,64KiB:30,1MiB:15,16MiB:5");
+            for (String arg : args) {
+                if (!arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unexpected argument: " + arg);
+                }
+                int eq = arg.indexOf('=');
+                String name = eq < 0 ? arg.substring(2) : arg.substring(2, eq);
+                String value = eq < 0 ? "" : arg.substring(eq + 1);
+                try {
+                    switch (name) {
+                        case "concurrency" -> options.concurrency = positive(name, Integer.parseInt(value));
+                        case "duration" -> options.duration = parseDuration(value);
+                        case "warmup" -> options.warmup = parseDuration(value);
+                        case "sizes" -> options.parseSizes(value);
+                        case "read-ratio" -> options.readRatio = parseRatio(value);
+                        case "algorithm" -> options.algorithm = Key.Algorithm.valueOf(value);
+                        case "key-id" -> options.keyId = Long.parseLong(value);
+                        case "user-id" -> options.userId = Long.parseLong(value);
+                        case "storage" -> options.storagePath = Path.of(value);
+                        case "keep-storage" -> options.keepStorage = true;
+                        default -> {
+                            if (!name.contains(".") || eq < 0) {
+                                throw new IllegalArgumentException("Unknown option: " + arg);
+                            }
+                            options.applicationArgs.add(arg);
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid value for --" + name + ": " + value);
+                }
+            }
+            return options;
+        }
+
+        int pickSize(ThreadLocalRandom random) {
+            int r = random.nextInt(totalWeight);
+            for (int i = 0; i < weights.length; i++) {
+                r -= weights[i];
+                if (r < 0) {
+                    return i;
+                }
+            }
+            return weights.length - 1;
+        }
+
+        String describeMix() {
+            StringBuilder mix = new StringBuilder();
+            for (int i = 0; i < sizes.length; i++) {
+                if (i > 0) {
+                    mix.append(", ");
+                }
+                mix.append(formatSize(sizes[i])).append(' ')
+                        .append(String.format(Locale.ROOT, "%.0f%%", 100.0 * weights[i] / totalWeight));
+            }
+            return mix.toString();
+        }
+
+        private void parseSizes(String value) {
+            Map<Long, Integer> mix = new LinkedHashMap<>();
+            for (String entry : value.split(",")) {
+                String[] parts = entry.trim().split(":");
+                if (parts.length > 2) {
+                    throw new IllegalArgumentException("Invalid size entry: " + entry);
+                }
+                long size = parseSize(parts[0].trim());
+                if (size <= 0 || size > 50 * MIB) {
+                    throw new IllegalArgumentException("Sizes must be between 1 byte and the 50 MiB upload limit: " + entry);
+                }
+                int weight = parts.length == 2 ? positive("sizes", Integer.parseInt(parts[1].trim())) : 1;
+                mix.merge(size, weight, Integer::sum);
+            }
+            sizes = mix.keySet().stream().sorted(Comparator.naturalOrder()).mapToLong(Long::longValue).toArray();
+            weights = Arrays.stream(sizes).mapToInt(size -> mix.get(size)).toArray();
+            totalWeight = Arrays.stream(weights).sum();
+        }
+
+        private static long parseSize(String value) {
+            String upper = value.toUpperCase(Locale.ROOT);
+            long unit = 1;
+            String number = upper;
+            if (upper.endsWith("MIB") || upper.endsWith("MB") || upper.endsWith("M")) {
+                unit = MIB;
+                number = upper.replaceFirst("(MIB|MB|M)$", "");
+            } else if (upper.endsWith("KIB") || upper.endsWith("KB") || upper.endsWith("K")) {
+                unit = KIB;
+                number = upper.replaceFirst("(KIB|KB|K)$", "");
+            } else if (upper.endsWith("B")) {
+                number = upper.substring(0, upper.length() - 1);
+            }
+            return Long.parseLong(number.trim()) * unit;
+        }
+
+        private static Duration parseDuration(String value) {
+            if (value.endsWith("ms")) {
+                return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+            }
+            if (value.endsWith("m")) {
+                return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+            }
+            if (value.endsWith("s")) {
+                return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+            }
+            return Duration.ofSeconds(Long.parseLong(value));
+        }
+
+        private static double parseRatio(String value) {
+            double ratio = Double.parseDouble(value);
+            if (ratio < 0 || ratio > 1) {
+                throw new IllegalArgumentException("--read-ratio must be between 0 and 1: " + value);
+            }
+            return ratio;
+        }
+
+        private static int positive(String name, int value) {
+            if (value <= 0) {
+                throw new IllegalArgumentException("--" + name + " must be positive: " + value);
+            }
+            return value;
+        }
+    }
+
+    private static String formatSize(long bytes) {
+        if (bytes >= MIB && bytes % MIB == 0) {
+            return bytes / MIB + " MiB";
+        }
+        if (bytes >= KIB && bytes % KIB == 0) {
+            return bytes / KIB + " KiB";
+        }
+        return bytes + " B";
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes >= 1024 * MIB) {
+            return String.format(Locale.ROOT, "%.2f GiB", bytes / (1024.0 * MIB));
+        }
+        if (bytes >= MIB) {
+            return String.format(Locale.ROOT, "%.1f MiB", (double) bytes / MIB);
+        }
+        return String.format(Locale.ROOT, "%.1f KiB", (double) bytes / KIB);
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).filter(count -> count > 0).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(time -> time > 0).sum();
+    }
+
+    private static void sleepUntil(long nanoTime) throws InterruptedException {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
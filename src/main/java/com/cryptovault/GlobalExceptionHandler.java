@@ -1,5 +1,6 @@
 package com.cryptovault;
 
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -24,7 +25,13 @@ public class GlobalExceptionHandler {
     }
 
     @ExceptionHandler(Exception.class)
-    public ResponseEntity<Object> handleExceptions(Exception ex, WebRequest request) {
+    public ResponseEntity<Object> handleExceptions(Exception ex, WebRequest request, HttpServletResponse response) throws Exception {
+        if (response.isCommitted()) {
+            // part of the body is already on the wire, e.g. a decrypt stream whose later segment failed
+            // authentication: the container aborts the connection, so the client cannot take the
+            // truncated body for a complete one
+            throw ex;
+        }
         String userMessage = "An unexpected internal error occurred.";
 
         return new ResponseEntity<>(
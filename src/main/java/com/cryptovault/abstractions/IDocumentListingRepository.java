@@ -0,0 +1,15 @@
+package com.cryptovault.abstractions;
+
+import com.cryptovault.dtos.DocumentListFilter;
+import com.cryptovault.dtos.DocumentSummary;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface IDocumentListingRepository {
+    /**
+     * Up to {@code limit} documents matching the filter, newest first, that sort after the
+     * (createdAt, id) position of the previous page; pass nulls for the first page.
+     */
+    List<DocumentSummary> findSummaries(DocumentListFilter filter, LocalDateTime beforeCreatedAt, Long beforeId, int limit);
+}
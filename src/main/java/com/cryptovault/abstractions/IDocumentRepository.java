@@ -1,7 +1,45 @@
 package com.cryptovault.abstractions;
 
 import com.cryptovault.models.Document;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 public interface IDocumentRepository extends JpaRepository<Document, Long> {
+    boolean existsByKeyId(Long keyId);
+
+    long countByKeyId(Long keyId);
+
+    @Query("SELECT COUNT(d) FROM Document d WHERE d.key.user.id = :userId")
+    long countByUserId(@Param("userId") Long userId);
+
+    // [id, pathEnc] of documents still stored directly in the storage root
+    @Query("SELECT d.id, d.pathEnc FROM Document d WHERE d.id > :afterId AND d.pathEnc NOT LIKE '%/%' ORDER BY d.id")
+    List<Object[]> findUnshardedPaths(@Param("afterId") Long afterId, Pageable pageable);
+
+    // [id, pathEnc] of documents whose location starts with the given prefix
+    @Query("SELECT d.id, d.pathEnc FROM Document d WHERE d.pathEnc LIKE CONCAT(:prefix, '%')")
+    List<Object[]> findPathsStartingWith(@Param("prefix") String prefix);
+
+    // [id, ivBase64, tagBase64, wrappedKeyBase64] of documents not yet converted to the binary columns
+    @Query("SELECT d.id, d.ivBase64, d.tagBase64, d.wrappedKeyBase64 FROM Document d " +
+            "WHERE d.id > :afterId AND d.wrappedKey IS NULL ORDER BY d.id")
+    List<Object[]> findBase64Envelopes(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Document d SET d.iv = :iv, d.tag = :tag, d.wrappedKey = :wrappedKey, " +
+            "d.ivBase64 = NULL, d.tagBase64 = NULL, d.wrappedKeyBase64 = NULL WHERE d.id = :id AND d.wrappedKey IS NULL")
+    int storeBinaryEnvelope(@Param("id") Long id, @Param("iv") byte[] iv, @Param("tag") byte[] tag,
+                            @Param("wrappedKey") byte[] wrappedKey);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Document d SET d.pathEnc = :newPath WHERE d.id = :id AND d.pathEnc = :oldPath")
+    int updatePathEnc(@Param("id") Long id, @Param("oldPath") String oldPath, @Param("newPath") String newPath);
 }
@@ -1,12 +1,39 @@
 package com.cryptovault.abstractions;
 
+import com.cryptovault.dtos.BatchEncryptionResult;
+import com.cryptovault.dtos.DocumentListFilter;
+import com.cryptovault.dtos.DocumentPage;
+import com.cryptovault.dtos.DocumentUpload;
+import com.cryptovault.dtos.DocumentVerificationResult;
+import com.cryptovault.dtos.FileRegion;
 import com.cryptovault.models.Document;
 import org.springframework.core.io.Resource;
 
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Map;
+
 public interface IDocumentService {
     Document EncryptFile(byte[] plaintext, Long keyId, String filename, String contentType) throws Exception;
 
+    Document EncryptFile(InputStream plaintext, Long keyId, String filename, String contentType) throws Exception;
+
+    List<BatchEncryptionResult> EncryptFiles(List<DocumentUpload> uploads, Long keyId) throws Exception;
+
     Resource DecryptFile(Long documentId) throws Exception;
 
+    Resource DecryptFileRange(Long documentId, long start, long end) throws Exception;
+
+    FileChannel OpenCiphertext(Document document) throws Exception;
+
+    FileRegion LocateCiphertext(Document document) throws Exception;
+
+    DocumentVerificationResult VerifyDocument(Long documentId) throws Exception;
+
     Document getDocumentById(Long documentId);
+
+    DocumentPage ListDocuments(DocumentListFilter filter, String cursor, Integer limit);
+
+    Map<String, Object> getDurabilityStats();
 }
\ No newline at end of file
@@ -1,9 +1,21 @@
 package com.cryptovault.abstractions;
 
+import com.cryptovault.dtos.FileRegion;
+
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 
 public interface IFileStorageService {
     String save(byte[] data) throws IOException;
+    String save(InputStream data) throws IOException;
     byte[] load(String path) throws IOException;
+    InputStream open(String path) throws IOException;
+    InputStream open(String path, long offset) throws IOException;
+    FileChannel openChannel(String path) throws IOException;
+    FileRegion locate(String path) throws IOException;
+    MappedByteBuffer map(String path) throws IOException;
     void delete(String path) throws IOException;
+    String relocate(String path) throws IOException;
 }
\ No newline at end of file
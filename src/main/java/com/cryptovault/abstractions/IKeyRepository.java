@@ -1,9 +1,13 @@
 package com.cryptovault.abstractions;
 
+import com.cryptovault.dtos.KeySummary;
 import com.cryptovault.models.Key;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -25,4 +29,40 @@ public interface IKeyRepository extends JpaRepository<Key, Long> {
 
     @Query(value = "SELECT type, COUNT(*) as count FROM keys WHERE user_id = :userId GROUP BY type", nativeQuery = true)
     List<Object[]> countKeysByTypeForUser(@Param("userId") Long userId);
+
+    @Query("SELECT k.user.id FROM Key k WHERE k.id = :keyId")
+    Optional<Long> findUserIdById(@Param("keyId") Long keyId);
+
+    // one row per key with its document count; neither key material nor documents are loaded
+    // the count is a correlated subquery so that nothing has to be grouped by the key material columns
+    @Query("SELECT new com.cryptovault.dtos.KeySummary(k.id, k.type, k.algorithm, k.publicKeyData, k.publicKeyDataBase64, " +
+            "k.createdAt, (SELECT COUNT(d) FROM Document d WHERE d.key = k)) " +
+            "FROM Key k WHERE k.user.id = :userId ORDER BY k.id")
+    List<KeySummary> findSummariesByUserId(@Param("userId") Long userId);
+
+    // the same rows a page at a time, keyed on the last id seen
+    @Query("SELECT new com.cryptovault.dtos.KeySummary(k.id, k.type, k.algorithm, k.publicKeyData, k.publicKeyDataBase64, " +
+            "k.createdAt, (SELECT COUNT(d) FROM Document d WHERE d.key = k)) " +
+            "FROM Key k WHERE k.user.id = :userId AND k.id > :afterId ORDER BY k.id")
+    List<KeySummary> findSummariesByUserId(@Param("userId") Long userId, @Param("afterId") Long afterId, Pageable pageable);
+
+    // key_data is no longer mapped on Key, so the queries touching it are native
+    // [id, key_data, public_key_data] of keys whose Base64 material has not been converted yet
+    @Query(value = "SELECT id, CAST(key_data AS VARCHAR), CAST(public_key_data AS VARCHAR) FROM keys " +
+            "WHERE id > :afterId AND key_data IS NOT NULL ORDER BY id", nativeQuery = true)
+    List<Object[]> findBase64KeyMaterial(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(value = "SELECT CAST(key_data AS VARCHAR) FROM keys WHERE id = :keyId AND key_data IS NOT NULL", nativeQuery = true)
+    Optional<String> findBase64KeyData(@Param("keyId") Long keyId);
+
+    // not a versioned update: the key material itself does not change
+    @Modifying
+    @Transactional
+    @Query("UPDATE Key k SET k.publicKeyData = :publicKeyData, k.publicKeyDataBase64 = NULL WHERE k.id = :id")
+    int storeBinaryPublicKey(@Param("id") Long id, @Param("publicKeyData") byte[] publicKeyData);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE keys SET key_data = NULL WHERE id = :id AND key_data IS NOT NULL", nativeQuery = true)
+    int clearBase64KeyData(@Param("id") Long id);
 }
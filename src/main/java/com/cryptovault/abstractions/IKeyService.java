@@ -1,5 +1,7 @@
 package com.cryptovault.abstractions;
 
+import com.cryptovault.dtos.KeyGenerationRequest;
+import com.cryptovault.dtos.KeySummary;
 import com.cryptovault.models.Key;
 import com.cryptovault.models.User;
 
@@ -16,8 +18,11 @@ public interface IKeyService {
     Key createRsaKeyModel(KeyPair keyPair, User user, Key.Algorithm algorithm);
     Key generateAndSaveAesKey(Long userId) throws NoSuchAlgorithmException;
     Key generateAndSaveRsaKey(Long userId, Key.Algorithm algorithm) throws NoSuchAlgorithmException;
+    List<Key> generateAndSaveKeys(List<KeyGenerationRequest> specs) throws NoSuchAlgorithmException;
     List<Key> getKeysByUserId(Long userId);
+    List<KeySummary> getKeySummariesByUserId(Long userId);
     Key getKeyByIdAndUserId(Long keyId, Long userId);
     void deleteKey(Long keyId, Long userId);
     Map<String, Object> getKeyStatistics(Long userId);
+    Map<String, Object> getKeyPoolStats();
 }
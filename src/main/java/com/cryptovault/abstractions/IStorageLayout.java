@@ -0,0 +1,19 @@
+package com.cryptovault.abstractions;
+
+/**
+ * Decides where an encrypted file lives relative to the storage root. Locations are stored
+ * verbatim in {@code Document.pathEnc}, so reading a file never has to search a directory.
+ */
+public interface IStorageLayout {
+    /**
+     * Location of the file with the given name, e.g. {@code "3f/a2/<uuid>.enc"}.
+     */
+    String locate(String fileName);
+
+    /**
+     * Whether every file sits directly in the storage root, i.e. there is nothing to migrate.
+     */
+    default boolean isFlat() {
+        return false;
+    }
+}
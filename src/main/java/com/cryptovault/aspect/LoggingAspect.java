@@ -1,31 +0,0 @@
-package com.cryptovault.aspect;
-
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import org.aspectj.lang.ProceedingJoinPoint;
-import org.aspectj.lang.annotation.Around;
-import org.aspectj.lang.annotation.Aspect;
-import org.springframework.stereotype.Component;
-import org.springframework.util.StopWatch;
-
-@Aspect
-@Component
-public class LoggingAspect {
-
-    private static final Logger logger = LogManager.getLogger(LoggingAspect.class);
-
-    @Around("execution(* com.cryptovault.services..*(..))")
-    public Object logExecutionTime(ProceedingJoinPoint joinPoint) throws Throwable {
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start();
-
-        Object proceed = joinPoint.proceed();
-
-        stopWatch.stop();
-        logger.info("Method: {} :: Execution time: {} мс",
-                joinPoint.getSignature().getName(),
-                stopWatch.getTotalTimeMillis());
-
-        return proceed;
-    }
-}
\ No newline at end of file
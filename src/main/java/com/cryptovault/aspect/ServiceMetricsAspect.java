@@ -0,0 +1,83 @@
+package com.cryptovault.aspect;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency of every service method as the {@code cryptovault.service.calls} timer,
+ * tagged with class, method and the exception thrown, if any. The timers publish histogram
+ * buckets, so percentiles can be computed across instances from the Prometheus endpoint.
+ * <p>
+ * Calls slower than {@code slow-call-threshold-ms} are also logged; 0 turns that off.
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+    private static final Logger logger = LogManager.getLogger(ServiceMetricsAspect.class);
+
+    private static final String METRIC_NAME = "cryptovault.service.calls";
+
+    private final MeterRegistry meterRegistry;
+
+    // timers of successful calls by method, so the hot path skips building and sorting a meter id
+    private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    @Value("${cryptovault.metrics.slow-call-threshold-ms:0}")
+    private long slowCallThresholdMs;
+
+    public ServiceMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(* com.cryptovault.services..*(..))")
+    public Object recordExecutionTime(ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+            Timer timer = failure == null
+                    ? timers.computeIfAbsent(method, m -> timer(m, "none"))
+                    : timer(method, failure.getClass().getSimpleName());
+            timer.record(elapsed, TimeUnit.NANOSECONDS);
+
+            if (slowCallThresholdMs > 0 && elapsed >= TimeUnit.MILLISECONDS.toNanos(slowCallThresholdMs)) {
+                logger.warn("Slow call: {}.{} took {} ms",
+                        method.getDeclaringClass().getSimpleName(), method.getName(),
+                        TimeUnit.NANOSECONDS.toMillis(elapsed));
+            }
+        }
+    }
+
+    private Timer timer(Method method, String exception) {
+        return Timer.builder(METRIC_NAME)
+                .description("Latency of service method calls")
+                .tag("class", method.getDeclaringClass().getSimpleName())
+                .tag("method", method.getName())
+                .tag("exception", exception)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,85 @@
+package com.cryptovault.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Internal executors. With {@code spring.threads.virtual.enabled} on a Java 21+ runtime, Spring Boot
+ * serves requests on virtual threads, and the document pipeline and {@code @Scheduled} tasks follow;
+ * purely CPU-bound pools stay on platform threads. See {@code docs/virtual-threads.md} for the pinning audit.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    // CPU-bound key material generation for batch requests, one thread per core by default
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService keyGenerationExecutor(
+            @Value("${cryptovault.keys.batch.threads:0}") int threads) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return Executors.newFixedThreadPool(size, namedThreads("keygen-"));
+    }
+
+    // hash/encrypt/wrap/write stages of batch uploads; a full queue makes the submitting request thread help out
+    // on virtual threads the pool size still bounds how many files are in flight, but a stage blocked
+    // on disk or on the group commit no longer holds an OS thread
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService documentPipelineExecutor(
+            @Value("${cryptovault.documents.batch.threads:0}") int threads,
+            @Value("${cryptovault.documents.batch.queue-capacity:256}") int queueCapacity,
+            Environment environment) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadFactory threadFactory = Threading.VIRTUAL.isActive(environment)
+                ? new VirtualThreadTaskExecutor("doc-pipeline-").getVirtualThreadFactory()
+                : namedThreads("doc-pipeline-");
+        return new ThreadPoolExecutor(size, size, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // background key report jobs; a full queue rejects new jobs instead of piling them up
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService reportExecutor(
+            @Value("${cryptovault.reports.jobs.threads:2}") int threads,
+            @Value("${cryptovault.reports.jobs.queue-capacity:32}") int queueCapacity,
+            Environment environment) {
+        ThreadFactory threadFactory = Threading.VIRTUAL.isActive(environment)
+                ? new VirtualThreadTaskExecutor("report-").getVirtualThreadFactory()
+                : namedThreads("report-");
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // the STOMP broker registers a scheduler of its own, which keeps Spring Boot from configuring one,
+    // so @Scheduled tasks would otherwise stay on the broker's platform thread
+    @Bean(name = "taskScheduler", destroyMethod = "close")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public SimpleAsyncTaskScheduler taskScheduler() {
+        SimpleAsyncTaskScheduler scheduler = new SimpleAsyncTaskScheduler();
+        scheduler.setVirtualThreads(true);
+        scheduler.setThreadNamePrefix("scheduling-");
+        return scheduler;
+    }
+
+    static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
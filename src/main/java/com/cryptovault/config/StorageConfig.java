@@ -0,0 +1,27 @@
+package com.cryptovault.config;
+
+import com.cryptovault.abstractions.IStorageLayout;
+import com.cryptovault.services.FlatStorageLayout;
+import com.cryptovault.services.ShardedStorageLayout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StorageConfig {
+
+    // "sharded" nests new files under hash-prefix directories, "flat" keeps the old single-directory layout
+    @Bean
+    public IStorageLayout storageLayout(
+            @Value("${cryptovault.storage.layout:sharded}") String layout,
+            @Value("${cryptovault.storage.shard-levels:2}") int shardLevels) {
+        switch (layout.toLowerCase()) {
+            case "sharded":
+                return new ShardedStorageLayout(shardLevels);
+            case "flat":
+                return new FlatStorageLayout();
+            default:
+                throw new IllegalArgumentException("Unknown storage layout: " + layout);
+        }
+    }
+}
@@ -1,6 +1,13 @@
 package com.cryptovault.controllers;
 
 import com.cryptovault.abstractions.IDocumentService;
+import com.cryptovault.dtos.BatchEncryptionResult;
+import com.cryptovault.dtos.DocumentListFilter;
+import com.cryptovault.dtos.DocumentPage;
+import com.cryptovault.dtos.DocumentSummary;
+import com.cryptovault.dtos.DocumentUpload;
+import com.cryptovault.dtos.DocumentVerificationResult;
+import com.cryptovault.dtos.FileRegion;
 import com.cryptovault.models.Document;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -9,18 +16,30 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @Tag(name = "Document", description = "Endpoints for encrypting and decrypting documents")
 @RequestMapping("/documents")
@@ -30,6 +49,12 @@ public class DocumentController {
     private static final Logger logger = LoggerFactory.getLogger(DocumentController.class);
     private static final long MAX_FILE_SIZE = 50 * 1024 * 1024; // 50 MB limit
 
+    // request attributes of Tomcat's sendfile support
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final IDocumentService documentService;
 
     public DocumentController(IDocumentService documentService) {
@@ -62,28 +87,18 @@ public class DocumentController {
             logger.info("Encrypting file: {} (size: {} bytes) with keyId: {}",
                     file.getOriginalFilename(), file.getSize(), keyId);
 
-            byte[] fileBytes = file.getBytes();
-            Document savedDocument = documentService.EncryptFile(
-                    fileBytes,
-                    keyId,
-                    file.getOriginalFilename(),
-                    file.getContentType());
+            Document savedDocument;
+            try (InputStream fileStream = file.getInputStream()) {
+                savedDocument = documentService.EncryptFile(
+                        fileStream,
+                        keyId,
+                        file.getOriginalFilename(),
+                        file.getContentType());
+            }
 
             logger.info("File encrypted successfully. Document ID: {}", savedDocument.getId());
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("document_id", savedDocument.getId());
-            response.put("filename", savedDocument.getFilename());
-            response.put("algorithm", "AES-256-GCM");
-            response.put("iv", savedDocument.getIv());
-            response.put("tag", savedDocument.getTag());
-            response.put("key_id", savedDocument.getKey().getId());
-            response.put("path_enc", savedDocument.getPathEnc());
-            response.put("file_hash", savedDocument.getFileHash());
-            response.put("original_size", savedDocument.getOriginalSize());
-            response.put("created_at", savedDocument.getCreatedAt());
-
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            return ResponseEntity.status(HttpStatus.CREATED).body(toDocumentResponse(savedDocument));
 
         } catch (IllegalArgumentException e) {
             logger.error("Validation error during encryption", e);
@@ -96,41 +111,322 @@ public class DocumentController {
         }
     }
 
-    @Operation(summary = "Decrypt a document", description = "Decrypts a document by its ID and returns the original file stream.")
+    @Operation(summary = "Encrypt several documents", description = "Uploads several files and encrypts each under its own AES-256-GCM session key wrapped with the same RSA key. "
+            + "Files are encrypted in parallel and their metadata is stored in a single transaction; a failing file does not fail the others.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "All documents encrypted successfully"),
+            @ApiResponse(responseCode = "207", description = "Some documents failed; see the per-file results"),
+            @ApiResponse(responseCode = "400", description = "Invalid input (no files or too many files)"),
+            @ApiResponse(responseCode = "404", description = "Encryption key not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error during encryption")
+    })
+    @PostMapping(value = "/encrypt/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> encryptBatch(
+            @Parameter(description = "Files to be encrypted (50MB per request)", required = true) @RequestParam("files") List<MultipartFile> files,
+
+            @Parameter(description = "ID of the Key to use for encryption", required = true) @RequestParam("keyId") Long keyId) {
+
+        try {
+            logger.info("Encrypting batch of {} file(s) with keyId: {}", files.size(), keyId);
+
+            List<DocumentUpload> uploads = files.stream()
+                    .map(file -> new DocumentUpload(file.getOriginalFilename(), file.getContentType(), file.getSize(), file))
+                    .collect(Collectors.toList());
+            List<BatchEncryptionResult> results = documentService.EncryptFiles(uploads, keyId);
+
+            List<Map<String, Object>> items = new ArrayList<>();
+            int failed = 0;
+            for (BatchEncryptionResult result : results) {
+                Map<String, Object> item;
+                if (result.isSuccess()) {
+                    item = toDocumentResponse(result.getDocument());
+                    item.put("status", "ENCRYPTED");
+                } else {
+                    failed++;
+                    item = new HashMap<>();
+                    item.put("filename", result.getFilename());
+                    item.put("status", "FAILED");
+                    item.put("error", result.getError());
+                }
+                items.add(item);
+            }
+            logger.info("Batch encrypted: {} succeeded, {} failed", results.size() - failed, failed);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("key_id", keyId);
+            response.put("files_count", results.size());
+            response.put("succeeded", results.size() - failed);
+            response.put("failed", failed);
+            response.put("results", items);
+
+            return ResponseEntity.status(failed == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS).body(response);
+
+        } catch (IllegalArgumentException e) {
+            logger.error("Validation error during batch encryption", e);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error during batch encryption", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Encryption failed: " + e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Decrypt a document", description = "Decrypts a document by its ID and streams the original file; each segment is authenticated before it is sent. "
+            + "A single byte range in the Range header is served as 206 Partial Content by decrypting only the segments that cover it.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Document decrypted successfully"),
+            @ApiResponse(responseCode = "206", description = "Requested byte range decrypted successfully"),
             @ApiResponse(responseCode = "404", description = "Document not found"),
+            @ApiResponse(responseCode = "416", description = "Requested range is outside the document"),
             @ApiResponse(responseCode = "500", description = "Internal server error during decryption")
     })
     @GetMapping(value = "/decrypt/{documentId}", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
     public ResponseEntity<?> decrypt(
-            @Parameter(description = "ID of the document to decrypt", required = true) @PathVariable Long documentId) {
+            @Parameter(description = "ID of the document to decrypt", required = true) @PathVariable Long documentId,
+
+            @Parameter(description = "Optional byte range, e.g. bytes=0-1023") @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            HttpServletResponse response) throws Exception {
 
         try {
             logger.info("Decrypting document with ID: {}", documentId);
             Document document = documentService.getDocumentById(documentId);
+            String filename = document.getFilename();
+
+            HttpRange httpRange = parseSingleRange(range);
+            if (httpRange != null && document.getOriginalSize() != null) {
+                return decryptRange(document, httpRange, response);
+            }
 
             Resource resource = documentService.DecryptFile(documentId);
-            String filename = document.getFilename();
+            response.setStatus(HttpStatus.OK.value());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            if (document.getOriginalSize() != null) {
+                response.setContentLengthLong(document.getOriginalSize());
+            }
+            writeDecrypted(resource, response);
             logger.info("Document decrypted successfully. Document ID: {}", documentId);
+            // the response has been written directly
+            return null;
+
+        } catch (IllegalArgumentException e) {
+            // the mapping produces octet-stream, so error bodies name their JSON type explicitly
+            logger.error("Document not found: {}", documentId, e);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).contentType(MediaType.APPLICATION_JSON)
+                    .body(createErrorResponse("Document not found with id: " + documentId));
+        } catch (SecurityException e) {
+            logger.error("Security error during decryption", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).contentType(MediaType.APPLICATION_JSON)
+                    .body(createErrorResponse("Security error: " + e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error during file decryption", e);
+            if (response.isCommitted()) {
+                // part of the plaintext is on the wire; only aborting the connection tells the client it is incomplete
+                throw e;
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).contentType(MediaType.APPLICATION_JSON)
+                    .body(createErrorResponse("Decryption failed: " + e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Export the raw ciphertext", description = "Streams the encrypted file exactly as stored, without decrypting it. "
+            + "On Tomcat the connector sends it with sendfile, from the page cache straight to the socket; "
+            + "elsewhere it is copied to the response through the container's output buffer.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Ciphertext streamed successfully"),
+            @ApiResponse(responseCode = "404", description = "Document not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error during export")
+    })
+    @GetMapping("/{documentId}/ciphertext")
+    public ResponseEntity<?> exportCiphertext(
+            @Parameter(description = "ID of the document to export", required = true) @PathVariable Long documentId,
+            HttpServletRequest request,
+            HttpServletResponse response) throws Exception {
 
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(resource);
+        try {
+            Document document = documentService.getDocumentById(documentId);
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                // the connector sends the file once this handler returns; start and end also select
+                // a record's slice of a packed segment
+                FileRegion region = documentService.LocateCiphertext(document);
+                setCiphertextHeaders(document, region.getLength(), response);
+                request.setAttribute(SENDFILE_FILENAME, region.getFile().toString());
+                request.setAttribute(SENDFILE_START, region.getStart());
+                request.setAttribute(SENDFILE_END, region.getStart() + region.getLength());
+            } else {
+                try (FileChannel channel = documentService.OpenCiphertext(document)) {
+                    long size = channel.size();
+                    setCiphertextHeaders(document, size, response);
+                    // committed before the copy, so a read failure below aborts the connection
+                    response.flushBuffer();
+                    WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+                    long position = 0;
+                    while (position < size) {
+                        position += channel.transferTo(position, size - position, target);
+                    }
+                }
+            }
+            logger.info("Ciphertext of document {} exported", documentId);
+            // the response has been written directly
+            return null;
 
         } catch (IllegalArgumentException e) {
             logger.error("Document not found: {}", documentId, e);
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(createErrorResponse("Document not found with id: " + documentId));
+        } catch (Exception e) {
+            logger.error("Error during ciphertext export", e);
+            if (response.isCommitted()) {
+                throw e;
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Export failed: " + e.getMessage()));
+        }
+    }
+
+    private static void setCiphertextHeaders(Document document, long size, HttpServletResponse response) {
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLengthLong(size);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + document.getFilename() + ".enc\"");
+        response.setHeader("X-Encryption-Algorithm", "AES-256-GCM");
+        response.setHeader("X-Encryption-IV", Base64.getEncoder().encodeToString(document.getIv()));
+        if (document.getSegmentSize() != null) {
+            response.setHeader("X-Segment-Size", String.valueOf(document.getSegmentSize()));
+        }
+        if (document.getCompression() != null) {
+            response.setHeader("X-Content-Compression", document.getCompression());
+        }
+    }
+
+    @Operation(summary = "Verify a document", description = "Decrypts every segment of a document in parallel and checks it against the document's segment hash tree, without returning the content.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Verification finished; see valid and failed_segments"),
+            @ApiResponse(responseCode = "404", description = "Document not found"),
+            @ApiResponse(responseCode = "409", description = "Document has no segment hash tree"),
+            @ApiResponse(responseCode = "500", description = "Internal server error during verification")
+    })
+    @GetMapping("/{documentId}/verify")
+    public ResponseEntity<?> verify(
+            @Parameter(description = "ID of the document to verify", required = true) @PathVariable Long documentId) {
+
+        try {
+            DocumentVerificationResult result = documentService.VerifyDocument(documentId);
+            logger.info("Document {} verified: valid={}", documentId, result.isValid());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("document_id", result.getDocumentId());
+            response.put("merkle_root", result.getMerkleRoot());
+            response.put("segment_count", result.getSegmentCount());
+            response.put("valid", result.isValid());
+            response.put("failed_segments", result.getFailedSegments());
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            logger.error("Document not found: {}", documentId, e);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(createErrorResponse("Document not found with id: " + documentId));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(createErrorResponse(e.getMessage()));
         } catch (SecurityException e) {
-            logger.error("Security error during decryption", e);
+            logger.error("Security error during verification", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(createErrorResponse("Security error: " + e.getMessage()));
         } catch (Exception e) {
-            logger.error("Error during file decryption", e);
+            logger.error("Error during document verification", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(createErrorResponse("Decryption failed: " + e.getMessage()));
+                    .body(createErrorResponse("Verification failed: " + e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> decryptRange(Document document, HttpRange httpRange, HttpServletResponse response) throws Exception {
+        long size = document.getOriginalSize();
+        long start = httpRange.getRangeStart(size);
+        long end = httpRange.getRangeEnd(size);
+        if (start >= size || end < start) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                    .build();
+        }
+
+        Resource resource = documentService.DecryptFileRange(document.getId(), start, end);
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + document.getFilename() + "\"");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLengthLong(end - start + 1);
+        writeDecrypted(resource, response);
+        logger.info("Decrypted bytes {}-{} of document ID: {}", start, end, document.getId());
+        return null;
+    }
+
+    /**
+     * The service has already authenticated the first segment, so the headers are committed before any
+     * plaintext is written. A segment failing later then always finds the response committed, and the
+     * connection is aborted instead of a JSON error being rendered under the octet-stream headers.
+     */
+    private void writeDecrypted(Resource resource, HttpServletResponse response) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            response.flushBuffer();
+            in.transferTo(response.getOutputStream());
+        }
+    }
+
+    // malformed or multi-range headers are ignored and the whole document is returned
+    private HttpRange parseSingleRange(String range) {
+        if (range == null) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(range);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            logger.debug("Ignoring malformed Range header: {}", range);
+            return null;
+        }
+    }
+
+    @Operation(summary = "List documents", description = "Returns the metadata of a user's documents, newest first, one page at a time. "
+            + "Pass next_cursor of a page as cursor to get the following page; it is null on the last page.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid limit, size range or cursor"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping
+    public ResponseEntity<?> listDocuments(
+            @Parameter(description = "User ID", required = true) @RequestParam("userId") Long userId,
+            @Parameter(description = "Only documents encrypted with this key") @RequestParam(value = "keyId", required = false) Long keyId,
+            @Parameter(description = "Only documents of this MIME type") @RequestParam(value = "contentType", required = false) String contentType,
+            @Parameter(description = "Minimum original size in bytes") @RequestParam(value = "minSize", required = false) Long minSize,
+            @Parameter(description = "Maximum original size in bytes") @RequestParam(value = "maxSize", required = false) Long maxSize,
+            @Parameter(description = "Page size (default 50)") @RequestParam(value = "limit", required = false) Integer limit,
+            @Parameter(description = "next_cursor of the previous page") @RequestParam(value = "cursor", required = false) String cursor) {
+
+        try {
+            DocumentListFilter filter = new DocumentListFilter(userId, keyId, contentType, minSize, maxSize);
+            DocumentPage page = documentService.ListDocuments(filter, cursor, limit);
+
+            List<Map<String, Object>> documents = page.getDocuments().stream()
+                    .map(this::toSummaryResponse)
+                    .collect(Collectors.toList());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("user_id", userId);
+            response.put("documents", documents);
+            response.put("count", documents.size());
+            response.put("next_cursor", page.getNextCursor());
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error listing documents for user: {}", userId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Failed to list documents: " + e.getMessage()));
         }
     }
 
@@ -143,6 +439,44 @@ public class DocumentController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(summary = "Durable write statistics", description = "Group-commit fsync batch sizes and commit latencies of the storage layer")
+    @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully")
+    @GetMapping("/storage/durability")
+    public ResponseEntity<?> durabilityStats() {
+        return ResponseEntity.ok(documentService.getDurabilityStats());
+    }
+
+    private Map<String, Object> toDocumentResponse(Document document) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("document_id", document.getId());
+        response.put("filename", document.getFilename());
+        response.put("algorithm", "AES-256-GCM");
+        response.put("iv", Base64.getEncoder().encodeToString(document.getIv()));
+        response.put("tag", Base64.getEncoder().encodeToString(document.getTag()));
+        response.put("key_id", document.getKey().getId());
+        response.put("path_enc", document.getPathEnc());
+        response.put("file_hash", document.getFileHash());
+        response.put("original_size", document.getOriginalSize());
+        response.put("segment_size", document.getSegmentSize());
+        response.put("merkle_root", document.getMerkleRoot());
+        response.put("compression", document.getCompression());
+        response.put("created_at", document.getCreatedAt());
+        return response;
+    }
+
+    private Map<String, Object> toSummaryResponse(DocumentSummary document) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("document_id", document.getId());
+        response.put("filename", document.getFilename());
+        response.put("content_type", document.getContentType());
+        response.put("original_size", document.getOriginalSize());
+        response.put("segment_size", document.getSegmentSize());
+        response.put("compression", document.getCompression());
+        response.put("key_id", document.getKeyId());
+        response.put("created_at", document.getCreatedAt());
+        return response;
+    }
+
     private Map<String, String> createErrorResponse(String message) {
         Map<String, String> error = new HashMap<>();
         error.put("error", message);
@@ -1,29 +1,31 @@
 package com.cryptovault.controllers;
 
 import com.cryptovault.abstractions.IKeyService;
+import com.cryptovault.dtos.KeyGenerationRequest;
+import com.cryptovault.dtos.KeySummary;
+import com.cryptovault.dtos.ReportJobStatus;
 import com.cryptovault.models.Key;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.cryptovault.models.User;
+import com.cryptovault.services.KeyReportJobService;
+import com.cryptovault.services.KeyReportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.InputStreamReader;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 @Tag(name = "Key", description = "Endpoints for managing cryptographic keys (AES, RSA)")
@@ -32,19 +34,16 @@ import java.util.stream.Collectors;
 
 public class KeyController {
     private static final Logger logger = LoggerFactory.getLogger(KeyController.class);
+    private static final String XLSX_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
     private final IKeyService keyService;
+    private final KeyReportService keyReportService;
+    private final KeyReportJobService keyReportJobService;
 
-    @Value("${cryptovault.scripts.path}")
-    private String scriptsPath;
-
-    @Value("${cryptovault.reports.output.path}")
-    private String reportsOutputPath;
-
-    @Value("${cryptovault.scripts.python.executable:python3}")
-    private String pythonExecutable;
-
-    public KeyController(IKeyService keyService) {
+    public KeyController(IKeyService keyService, KeyReportService keyReportService,
+                         KeyReportJobService keyReportJobService) {
         this.keyService = keyService;
+        this.keyReportService = keyReportService;
+        this.keyReportJobService = keyReportJobService;
     }
 
     // POST keys/generate
@@ -87,31 +86,72 @@ public class KeyController {
 
             logger.info("Key generated successfully. Key ID: {}", savedKey.getId());
 
+            return ResponseEntity.status(HttpStatus.CREATED).body(toKeyResponse(savedKey));
+
+        } catch (IllegalArgumentException e) {
+            logger.error("Validation error during key generation", e);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(createErrorResponse(e.getMessage()));
+
+        } catch (Exception e) {
+            logger.error("Error during key generation", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Key generation failed: " + e.getMessage()));
+        }
+    }
+
+    // POST keys/generate/batch
+    @Operation(summary = "Generate a batch of cryptographic keys", description = "Generates the key material for all specifications in parallel and stores every key in a single transaction")
+    @ApiResponse(responseCode = "201", description = "Keys generated successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid specification or unknown user")
+    @ApiResponse(responseCode = "500", description = "Internal server error during key generation")
+    @PostMapping("/generate/batch")
+    public ResponseEntity<?> generateKeys(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Key specifications", required = true) @RequestBody List<KeyGenerationRequest> specs) {
+
+        try {
+            logger.info("Generating batch of {} keys", specs != null ? specs.size() : 0);
+
+            List<Key> savedKeys = keyService.generateAndSaveKeys(specs);
+
+            List<Map<String, Object>> keyList = savedKeys.stream()
+                    .map(this::toKeyResponse)
+                    .collect(Collectors.toList());
+
             Map<String, Object> response = new HashMap<>();
-            response.put("key_id", savedKey.getId());
-            response.put("type", savedKey.getType());
-            response.put("algorithm", savedKey.getAlgorithm());
-            response.put("created_at", savedKey.getCreatedAt());
-            response.put("user_id", savedKey.getUser().getId());
-
-            if (savedKey.getType() == Key.KeyType.RSA) {
-                response.put("public_key", savedKey.getPublicKeyData());
-            }
+            response.put("keys_count", keyList.size());
+            response.put("keys", keyList);
+
+            logger.info("Batch of {} keys generated successfully", keyList.size());
 
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
 
         } catch (IllegalArgumentException e) {
-            logger.error("Validation error during key generation", e);
+            logger.error("Validation error during batch key generation", e);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(createErrorResponse(e.getMessage()));
 
         } catch (Exception e) {
-            logger.error("Error during key generation", e);
+            logger.error("Error during batch key generation", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(createErrorResponse("Key generation failed: " + e.getMessage()));
         }
     }
 
+    private Map<String, Object> toKeyResponse(Key key) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("key_id", key.getId());
+        response.put("type", key.getType());
+        response.put("algorithm", key.getAlgorithm());
+        response.put("created_at", key.getCreatedAt());
+        response.put("user_id", key.getUser().getId());
+
+        if (key.getType() == Key.KeyType.RSA) {
+            response.put("public_key", Base64.getEncoder().encodeToString(key.getPublicKeyData()));
+        }
+        return response;
+    }
+
     // GET /keys
     @Operation(summary = "Get all keys for a user", description = "Returns a list of all cryptographic keys belonging to the specified user")
     @ApiResponse(responseCode = "200", description = "Keys retrieved successfully")
@@ -124,7 +164,7 @@ public class KeyController {
         try {
             logger.info("Fetching keys for user: {}", userId);
 
-            List<Key> keys = keyService.getKeysByUserId(userId);
+            List<KeySummary> keys = keyService.getKeySummariesByUserId(userId);
 
             List<Map<String, Object>> keyList = keys.stream().map(key -> {
                 Map<String, Object> keyInfo = new HashMap<>();
@@ -132,10 +172,10 @@ public class KeyController {
                 keyInfo.put("type", key.getType());
                 keyInfo.put("algorithm", key.getAlgorithm());
                 keyInfo.put("created_at", key.getCreatedAt());
-                keyInfo.put("documents_count", key.getDocuments() != null ? key.getDocuments().size() : 0);
+                keyInfo.put("documents_count", key.getDocumentsCount());
 
                 if (key.getType() == Key.KeyType.RSA) {
-                    keyInfo.put("public_key", key.getPublicKeyData());
+                    keyInfo.put("public_key", Base64.getEncoder().encodeToString(key.getPublicKeyData()));
                 }
 
                 return keyInfo;
@@ -157,6 +197,14 @@ public class KeyController {
         }
     }
 
+    // GET /keys/pool
+    @Operation(summary = "Get RSA key pool statistics", description = "Returns depth and refill statistics of the pre-generated RSA key pair pool per algorithm")
+    @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully")
+    @GetMapping("/pool")
+    public ResponseEntity<Map<String, Object>> getKeyPoolStats() {
+        return ResponseEntity.ok(keyService.getKeyPoolStats());
+    }
+
     // DELETE /keys/{id}
 
     @Operation(summary = "Delete a cryptographic key", description = "Deletes a key if it is not used by any documents")
@@ -207,86 +255,122 @@ public class KeyController {
     }
 
     // GET /keys/report
-    @Operation(summary = "Generate Excel report with key statistics", description = "Generates and downloads an Excel report containing key statistics for the specified user")
+    @Operation(summary = "Generate Excel report with key statistics", description = "Generates and downloads an Excel report containing key statistics for the specified user. "
+            + "The workbook is written to the response while the keys are read page by page.")
     @ApiResponse(responseCode = "200", description = "Report generated successfully")
     @ApiResponse(responseCode = "404", description = "User not found")
     @ApiResponse(responseCode = "500", description = "Report generation failed")
     @GetMapping("/report")
     public ResponseEntity<?> generateKeyReport(
-            @Parameter(description = "User ID", required = true) @RequestParam("userId") Long userId) {
+            @Parameter(description = "User ID", required = true) @RequestParam("userId") Long userId,
+            HttpServletResponse response) throws Exception {
 
         try {
             logger.info("Generating key statistics report for user: {}", userId);
 
-            Map<String, Object> stats = keyService.getKeyStatistics(userId);
-            ObjectMapper mapper = new ObjectMapper();
-            String statsJson = mapper.writeValueAsString(stats);
+            User user = keyReportService.getReportUser(userId);
+            String filename = "key_statistics_user_" + userId + "_" + System.currentTimeMillis() + ".xlsx";
+            response.setContentType(XLSX_CONTENT_TYPE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+            keyReportService.writeKeyReport(user, response.getOutputStream());
 
-            String tempJsonPath = reportsOutputPath + "/temp_stats_" + userId + "_" + System.currentTimeMillis()
-                    + ".json";
-            File tempJsonFile = new File(tempJsonPath);
+            logger.info("Report generated successfully for user: {}", userId);
+            // the response has been written directly
+            return null;
 
-            File outputDir = new File(reportsOutputPath);
-            if (!outputDir.exists()) {
-                outputDir.mkdirs();
-            }
+        } catch (IllegalArgumentException e) {
+            logger.error("User not found: {}", userId, e);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(createErrorResponse("User not found with id: " + userId));
 
-            try (java.io.FileWriter writer = new java.io.FileWriter(tempJsonFile)) {
-                writer.write(statsJson);
+        } catch (Exception e) {
+            logger.error("Error generating report for user: {}", userId, e);
+            if (response.isCommitted()) {
+                // part of the workbook is on the wire; aborting the connection tells the client it is incomplete
+                throw e;
             }
+            // only the report's own body and headers are undone; headers such as CORS stay
+            response.resetBuffer();
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).contentType(MediaType.APPLICATION_JSON)
+                    .body(createErrorResponse("Report generation failed: " + e.getMessage()));
+        }
+    }
 
-            String filename = "key_statistics_user_" + userId + "_" + System.currentTimeMillis() + ".xlsx";
-            String outputPath = reportsOutputPath + "/" + filename;
-
-            String scriptPath = scriptsPath + "/generate_key_report.py";
-            ProcessBuilder pb = new ProcessBuilder(
-                    pythonExecutable,
-                    scriptPath,
-                    tempJsonPath,
-                    outputPath);
-            pb.redirectErrorStream(true);
-            Process process = pb.start();
-            // output reading for logging
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String line;
-            StringBuilder output = new StringBuilder();
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-                logger.debug("Python script output: {}", line);
-            }
+    // POST /keys/report/jobs
+    @Operation(summary = "Start a key report job", description = "Generates the key statistics report in the background. "
+            + "Completion is announced on the STOMP topic /topic/reports/{userId}; a report that is still cached completes at once.")
+    @ApiResponse(responseCode = "202", description = "Job accepted")
+    @ApiResponse(responseCode = "404", description = "User not found")
+    @ApiResponse(responseCode = "503", description = "Report queue is full")
+    @PostMapping("/report/jobs")
+    public ResponseEntity<?> submitReportJob(
+            @Parameter(description = "User ID", required = true) @RequestParam("userId") Long userId) {
 
-            int exitCode = process.waitFor();
-            tempJsonFile.delete();
-            if (exitCode != 0) {
-                logger.error("Script output: {}", output.toString());
-                throw new RuntimeException("Report generation script failed with exit code: " + exitCode);
-            }
+        try {
+            ReportJobStatus job = keyReportJobService.submit(userId);
+            logger.info("Report job {} submitted for user: {}", job.getJobId(), userId);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
 
-            File reportFile = new File(outputPath);
-            if (!reportFile.exists()) {
-                throw new RuntimeException("Report file was not generated");
-            }
+        } catch (IllegalArgumentException e) {
+            logger.error("User not found: {}", userId, e);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(createErrorResponse("User not found with id: " + userId));
+
+        } catch (RejectedExecutionException e) {
+            logger.warn("Report queue is full, rejecting job for user: {}", userId);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(createErrorResponse("Report queue is full, try again later"));
+        }
+    }
 
-            Resource resource = new FileSystemResource(reportFile);
+    // GET /keys/report/jobs/{jobId}
+    @Operation(summary = "Get the state of a key report job")
+    @ApiResponse(responseCode = "200", description = "Job state retrieved")
+    @ApiResponse(responseCode = "404", description = "Job not found or expired")
+    @GetMapping("/report/jobs/{jobId}")
+    public ResponseEntity<?> getReportJob(
+            @Parameter(description = "Job ID", required = true) @PathVariable String jobId) {
 
-            logger.info("Report generated successfully for user: {}", userId);
+        try {
+            return ResponseEntity.ok(keyReportJobService.getStatus(jobId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+        }
+    }
+
+    // GET /keys/report/jobs/{jobId}/download
+    @Operation(summary = "Download the report of a finished job")
+    @ApiResponse(responseCode = "200", description = "Report downloaded")
+    @ApiResponse(responseCode = "404", description = "Job not found or expired")
+    @ApiResponse(responseCode = "409", description = "Job has not completed successfully")
+    @GetMapping("/report/jobs/{jobId}/download")
+    public ResponseEntity<?> downloadReportJob(
+            @Parameter(description = "Job ID", required = true) @PathVariable String jobId) {
 
+        try {
+            ReportJobStatus job = keyReportJobService.getStatus(jobId);
+            byte[] content = keyReportJobService.getReport(jobId).getContent();
+            String filename = "key_statistics_user_" + job.getUserId() + "_" + jobId + ".xlsx";
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .contentType(MediaType
-                            .parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .body(resource);
+                    .contentType(MediaType.parseMediaType(XLSX_CONTENT_TYPE))
+                    .contentLength(content.length)
+                    .body(content);
 
         } catch (IllegalArgumentException e) {
-            logger.error("User not found: {}", userId, e);
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(createErrorResponse("User not found with id: " + userId));
-
-        } catch (Exception e) {
-            logger.error("Error generating report for user: {}", userId, e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(createErrorResponse("Report generation failed: " + e.getMessage()));
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(createErrorResponse(e.getMessage()));
         }
     }
 
+    // GET /keys/report/cache
+    @Operation(summary = "Get key report cache statistics", description = "Returns size, hit and invalidation counts of the per-user report cache")
+    @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully")
+    @GetMapping("/report/cache")
+    public ResponseEntity<Map<String, Object>> getReportCacheStats() {
+        return ResponseEntity.ok(keyReportJobService.getCacheStats());
+    }
+
 }
@@ -0,0 +1,28 @@
+package com.cryptovault.dtos;
+
+import com.cryptovault.models.Document;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Outcome for a single file of a batch upload: either the stored document or the error.
+ */
+@Data
+@AllArgsConstructor
+public class BatchEncryptionResult {
+    private String filename;
+    private Document document;
+    private String error;
+
+    public static BatchEncryptionResult succeeded(String filename, Document document) {
+        return new BatchEncryptionResult(filename, document, null);
+    }
+
+    public static BatchEncryptionResult failed(String filename, String error) {
+        return new BatchEncryptionResult(filename, null, error);
+    }
+
+    public boolean isSuccess() {
+        return document != null;
+    }
+}
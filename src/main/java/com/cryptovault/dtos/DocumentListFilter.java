@@ -0,0 +1,19 @@
+package com.cryptovault.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Filters of a document listing. Only {@code userId} is required; a null field is not filtered on.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentListFilter {
+    private Long userId;
+    private Long keyId;
+    private String contentType;
+    private Long minSize;
+    private Long maxSize;
+}
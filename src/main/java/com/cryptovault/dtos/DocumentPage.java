@@ -0,0 +1,16 @@
+package com.cryptovault.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of a document listing. {@code nextCursor} is null on the last page.
+ */
+@Data
+@AllArgsConstructor
+public class DocumentPage {
+    private List<DocumentSummary> documents;
+    private String nextCursor;
+}
@@ -0,0 +1,23 @@
+package com.cryptovault.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Listing view of a document: the metadata a client browses by, without the storage location,
+ * IV, tag, wrapped session key or hashes.
+ */
+@Data
+@AllArgsConstructor
+public class DocumentSummary {
+    private Long id;
+    private String filename;
+    private String contentType;
+    private Long originalSize;
+    private Integer segmentSize;
+    private String compression;
+    private Long keyId;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,17 @@
+package com.cryptovault.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.core.io.InputStreamSource;
+
+/**
+ * One file of a batch upload; the content is opened lazily by the worker that encrypts it.
+ */
+@Data
+@AllArgsConstructor
+public class DocumentUpload {
+    private String filename;
+    private String contentType;
+    private long size;
+    private InputStreamSource source;
+}
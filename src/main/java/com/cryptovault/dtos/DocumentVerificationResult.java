@@ -0,0 +1,19 @@
+package com.cryptovault.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Result of checking every segment of a document against its hash tree.
+ */
+@Data
+@AllArgsConstructor
+public class DocumentVerificationResult {
+    private Long documentId;
+    private String merkleRoot;
+    private int segmentCount;
+    private boolean valid;
+    private List<Integer> failedSegments;
+}
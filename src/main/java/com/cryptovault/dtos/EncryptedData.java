@@ -1,17 +1,29 @@
 package com.cryptovault.dtos;
 
+import java.util.Arrays;
+
 public class EncryptedData {
-    private final byte[] _ciphertext;
+    private static final int TAG_LENGTH = 16;
+
+    // ciphertext and GCM tag are kept contiguous, exactly as the cipher produced them
+    private final byte[] _ciphertextWithTag;
     private final byte[] _iv;
-    private final byte[] _tag;
+
+    public EncryptedData(byte[] ciphertextWithTag, byte[] iv){
+        _ciphertextWithTag = ciphertextWithTag;
+        _iv = iv;
+    }
 
     public EncryptedData(byte[] ciphertext, byte[] iv, byte[] tag){
-        _ciphertext = ciphertext;
+        _ciphertextWithTag = Arrays.copyOf(ciphertext, ciphertext.length + tag.length);
+        System.arraycopy(tag, 0, _ciphertextWithTag, ciphertext.length, tag.length);
         _iv = iv;
-        _tag = tag;
     }
 
-    public byte[] getCiphertext() { return _ciphertext;}
+    public byte[] getCiphertextWithTag() { return _ciphertextWithTag; }
     public byte[] getIv() { return _iv; }
-    public byte[] getTag() { return _tag; }
+
+    // copies; prefer getCiphertextWithTag() on hot paths
+    public byte[] getCiphertext() { return Arrays.copyOf(_ciphertextWithTag, _ciphertextWithTag.length - TAG_LENGTH); }
+    public byte[] getTag() { return Arrays.copyOfRange(_ciphertextWithTag, _ciphertextWithTag.length - TAG_LENGTH, _ciphertextWithTag.length); }
 }
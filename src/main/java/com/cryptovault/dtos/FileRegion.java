@@ -0,0 +1,17 @@
+package com.cryptovault.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.file.Path;
+
+/**
+ * Where a stored object lives on disk: a whole blob file, or a record's slice of a packed segment.
+ */
+@Data
+@AllArgsConstructor
+public class FileRegion {
+    private Path file;
+    private long start;
+    private long length;
+}
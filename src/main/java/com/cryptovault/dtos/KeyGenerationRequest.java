@@ -0,0 +1,24 @@
+package com.cryptovault.dtos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Specification of a single key in a batch generation request")
+public class KeyGenerationRequest {
+    @JsonProperty("user_id")
+    @Schema(description = "User ID", example = "1")
+    private Long userId;
+
+    @JsonProperty("key_type")
+    @Schema(description = "Key type: AES or RSA", example = "RSA")
+    private String keyType;
+
+    @Schema(description = "Algorithm (for RSA: RSA_2048_OAEP or RSA_3072_OAEP)", example = "RSA_3072_OAEP")
+    private String algorithm;
+}
@@ -0,0 +1,31 @@
+package com.cryptovault.dtos;
+
+import com.cryptovault.models.Key;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Listing view of a key: its metadata and the number of documents encrypted with it,
+ * without the key material or the documents themselves.
+ */
+@Data
+@AllArgsConstructor
+public class KeySummary {
+    private Long id;
+    private Key.KeyType type;
+    private Key.Algorithm algorithm;
+    private byte[] publicKeyData;
+    private LocalDateTime createdAt;
+    private Long documentsCount;
+
+    // query constructor; falls back to the Base64 column for keys the backfill has not converted yet
+    public KeySummary(Long id, Key.KeyType type, Key.Algorithm algorithm, byte[] publicKeyData,
+                      String publicKeyDataBase64, LocalDateTime createdAt, Long documentsCount) {
+        this(id, type, algorithm,
+                publicKeyData != null || publicKeyDataBase64 == null ? publicKeyData : Base64.getDecoder().decode(publicKeyDataBase64),
+                createdAt, documentsCount);
+    }
+}
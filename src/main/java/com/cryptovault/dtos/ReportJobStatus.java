@@ -0,0 +1,46 @@
+package com.cryptovault.dtos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "State of an asynchronous key report job")
+public class ReportJobStatus {
+    @JsonProperty("job_id")
+    @Schema(description = "Job ID", example = "3f2b8c1e-5d4a-4e7b-9c2d-1a6f0e8b7c3d")
+    private String jobId;
+
+    @JsonProperty("user_id")
+    @Schema(description = "User the report is for", example = "1")
+    private Long userId;
+
+    @Schema(description = "QUEUED, RUNNING, COMPLETED or FAILED", example = "COMPLETED")
+    private String status;
+
+    @Schema(description = "Whether the report was served from the report cache", example = "false")
+    private boolean cached;
+
+    @JsonProperty("submitted_at")
+    private LocalDateTime submittedAt;
+
+    @JsonProperty("completed_at")
+    private LocalDateTime completedAt;
+
+    @JsonProperty("size_bytes")
+    @Schema(description = "Size of the generated report", example = "4096")
+    private Long sizeBytes;
+
+    @JsonProperty("download_url")
+    @Schema(description = "Where to fetch the report once the job is completed", example = "/keys/report/jobs/3f2b.../download")
+    private String downloadUrl;
+
+    @Schema(description = "Failure reason of a FAILED job")
+    private String error;
+}
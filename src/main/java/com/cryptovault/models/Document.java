@@ -1,5 +1,6 @@
 package com.cryptovault.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
@@ -9,10 +10,13 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.Base64;
 
 @Entity
 @Table(name = "documents", indexes = {
         @Index(name = "idx_doc_key", columnList = "key_id"),
+        @Index(name = "idx_doc_key_created", columnList = "key_id, created_at, id"),
+        @Index(name = "idx_doc_created", columnList = "created_at, id"),
         @Index(name = "idx_doc_filename", columnList = "filename")
 })
 @Data
@@ -36,19 +40,31 @@ public class Document {
     @Schema(description = "Path to the encrypted file on disk", example = "/uploads/enc/1001.enc")
     private String pathEnc;
 
-    @NotBlank
-    @Column(nullable = false, length = 64)
-    @Schema(description = "Initialization Vector (IV) for AES encryption (Base64)", example = "d93k...")
-    private String iv;
+    // null only on rows written before V7 that KeyMaterialBackfill has not converted yet
+    @Column(name = "iv_bytes")
+    @Schema(description = "Initialization Vector (IV) for AES encryption", example = "d93k...")
+    private byte[] iv;
 
-    @NotBlank
-    @Column(nullable = false, length = 64)
+    @Column(name = "tag_bytes")
     @Schema(description = "Authentication Tag (GCM) for integrity check", example = "xYz12...")
-    private String tag;
+    private byte[] tag;
 
-    @Column(name = "wrapped_key", nullable = false, columnDefinition = "TEXT")
+    @Column(name = "wrapped_key_bytes")
     @Schema(description = "Encrypted AES key (Envelope encryption)", example = "Base64 string...")
-    private String wrappedKey;
+    private byte[] wrappedKey;
+
+    // Base64 columns from before V7, cleared once the row has been converted
+    @Column(name = "iv", length = 64)
+    @JsonIgnore
+    private String ivBase64;
+
+    @Column(name = "tag", length = 64)
+    @JsonIgnore
+    private String tagBase64;
+
+    @Column(name = "wrapped_key", columnDefinition = "TEXT")
+    @JsonIgnore
+    private String wrappedKeyBase64;
 
     @NotNull
     @ManyToOne(fetch = FetchType.LAZY)
@@ -65,6 +81,21 @@ public class Document {
     @Schema(description = "Size of the original file in bytes", example = "102400")
     private Long originalSize;
 
+    // null for documents sealed as a single GCM message
+    @Column(name = "segment_size")
+    @Schema(description = "Plaintext bytes per AES-GCM segment of the encrypted file", example = "65536")
+    private Integer segmentSize;
+
+    // root of the per-segment hash tree; null when the document has none
+    @Column(name = "merkle_root", length = 64)
+    @Schema(description = "Merkle root over the SHA-256 hashes of the segment plaintexts (compressed, if the document is)", example = "9f86d081...")
+    private String merkleRoot;
+
+    // null when the segments hold the original bytes
+    @Column(name = "compression", length = 16)
+    @Schema(description = "Compression applied before encryption", example = "DEFLATE")
+    private String compression;
+
     // MIME type
     @Column(name = "content_type", length = 100)
     @Schema(description = "MIME type of the file", example = "application/pdf")
@@ -78,4 +109,16 @@ public class Document {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
     }
+
+    public byte[] getIv() {
+        return iv != null || ivBase64 == null ? iv : Base64.getDecoder().decode(ivBase64);
+    }
+
+    public byte[] getTag() {
+        return tag != null || tagBase64 == null ? tag : Base64.getDecoder().decode(tagBase64);
+    }
+
+    public byte[] getWrappedKey() {
+        return wrappedKey != null || wrappedKeyBase64 == null ? wrappedKey : Base64.getDecoder().decode(wrappedKeyBase64);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.cryptovault.models;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// kept out of the documents table so that loading a document does not drag its leaf hashes along
+@Entity
+@Table(name = "document_hash_trees")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Per-segment SHA-256 leaf hashes of a document's Merkle tree")
+public class DocumentHashTree {
+
+    @Id
+    @Column(name = "document_id")
+    @Schema(description = "Identifier of the document the tree belongs to", example = "1001")
+    private Long documentId;
+
+    @Column(name = "segment_count", nullable = false)
+    @Schema(description = "Number of plaintext segments (leaves)", example = "16")
+    private Integer segmentCount;
+
+    @Column(name = "leaf_hashes", nullable = false, columnDefinition = "TEXT")
+    @Schema(description = "Concatenated 32-byte leaf hashes (Base64)", example = "Base64 string...")
+    private String leafHashes;
+}
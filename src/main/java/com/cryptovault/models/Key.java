@@ -5,10 +5,12 @@ import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 
 @Entity
@@ -42,20 +44,41 @@ public class Key {
     @Enumerated(EnumType.STRING)
     private Algorithm algorithm;
 
-    @Column(name = "key_data", nullable = false, columnDefinition = "TEXT")
-    private String keyData;
+    // secret or private key material of a key that is about to be created; it is stored in
+    // key_secrets and never loaded with the entity, see KeySecret
+    @Transient
+    @JsonIgnore
+    @ToString.Exclude
+    private byte[] keyData;
+
+    // null only on rows written before V7 that KeyMaterialBackfill has not converted yet
+    @Column(name = "public_key_bytes")
+    private byte[] publicKeyData;
 
+    // Base64 column from before V7, cleared once the row has been converted
     @Column(name = "public_key_data", columnDefinition = "TEXT")
-    private String publicKeyData;
+    @JsonIgnore
+    private String publicKeyDataBase64;
 
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    // bumped on every update; cached parsed key objects are tied to it
+    @Version
+    @Column(nullable = false)
+    @JsonIgnore
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
     }
 
+    public byte[] getPublicKeyData() {
+        return publicKeyData != null || publicKeyDataBase64 == null
+                ? publicKeyData : Base64.getDecoder().decode(publicKeyDataBase64);
+    }
+
     @OneToMany(mappedBy = "key", cascade = CascadeType.ALL)
     @JsonIgnore
     private List<Document> documents = new ArrayList<>();
@@ -66,9 +89,19 @@ public class Key {
     }
 
     public enum Algorithm {
-        AES_256_GCM,
-        RSA_2048_OAEP,
-        RSA_3072_OAEP
+        AES_256_GCM(256),
+        RSA_2048_OAEP(2048),
+        RSA_3072_OAEP(3072);
+
+        private final int keySize;
+
+        Algorithm(int keySize) {
+            this.keySize = keySize;
+        }
+
+        public int getKeySize() {
+            return keySize;
+        }
     }
 
 }
@@ -0,0 +1,28 @@
+package com.cryptovault.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+// kept out of the keys table so that listing keys or following Document.key does not load private key material
+@Entity
+@Table(name = "key_secrets")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeySecret {
+
+    @Id
+    @Column(name = "key_id")
+    private Long keyId;
+
+    // PKCS#8 private key of an RSA key, raw secret of an AES key
+    @Column(name = "key_bytes", nullable = false)
+    @ToString.Exclude
+    private byte[] keyData;
+}
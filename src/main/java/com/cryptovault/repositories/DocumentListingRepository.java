@@ -0,0 +1,83 @@
+package com.cryptovault.repositories;
+
+import com.cryptovault.abstractions.IDocumentListingRepository;
+import com.cryptovault.dtos.DocumentListFilter;
+import com.cryptovault.dtos.DocumentSummary;
+import com.cryptovault.models.Document;
+import com.cryptovault.models.Key;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keyset listing of documents. The query is assembled from the filters that are actually set
+ * rather than written as one JPQL statement with {@code :param IS NULL OR ...} guards, so every
+ * filter combination gets a plain predicate the database can match against the
+ * {@code (key_id, created_at, id)} and {@code (created_at, id)} indexes.
+ */
+@Repository
+public class DocumentListingRepository implements IDocumentListingRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<DocumentSummary> findSummaries(DocumentListFilter filter, LocalDateTime beforeCreatedAt, Long beforeId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<DocumentSummary> query = cb.createQuery(DocumentSummary.class);
+        Root<Document> document = query.from(Document.class);
+        Join<Document, Key> key = document.join("key");
+        Path<LocalDateTime> createdAt = document.get("createdAt");
+        Path<Long> id = document.get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(key.get("user").get("id"), filter.getUserId()));
+        if (filter.getKeyId() != null) {
+            predicates.add(cb.equal(key.get("id"), filter.getKeyId()));
+        }
+        if (filter.getContentType() != null) {
+            predicates.add(cb.equal(document.get("contentType"), filter.getContentType()));
+        }
+        if (filter.getMinSize() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(document.get("originalSize"), filter.getMinSize()));
+        }
+        if (filter.getMaxSize() != null) {
+            predicates.add(cb.lessThanOrEqualTo(document.get("originalSize"), filter.getMaxSize()));
+        }
+        if (beforeCreatedAt != null) {
+            // (created_at, id) < (:createdAt, :id); the leading <= gives the index a range to start from
+            predicates.add(cb.lessThanOrEqualTo(createdAt, beforeCreatedAt));
+            predicates.add(cb.or(
+                    cb.lessThan(createdAt, beforeCreatedAt),
+                    cb.and(cb.equal(createdAt, beforeCreatedAt), cb.lessThan(id, beforeId))));
+        }
+
+        query.select(cb.construct(DocumentSummary.class,
+                        id,
+                        document.get("filename"),
+                        document.get("contentType"),
+                        document.get("originalSize"),
+                        document.get("segmentSize"),
+                        document.get("compression"),
+                        key.get("id"),
+                        createdAt))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(createdAt), cb.desc(id));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
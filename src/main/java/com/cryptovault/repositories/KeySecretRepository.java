@@ -0,0 +1,9 @@
+package com.cryptovault.repositories;
+
+import com.cryptovault.models.KeySecret;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface KeySecretRepository extends JpaRepository<KeySecret, Long> {
+}
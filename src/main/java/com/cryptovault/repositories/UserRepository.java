@@ -5,6 +5,8 @@ import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import com.cryptovault.models.User;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     //no Queries needed for basic CRUD operations
@@ -14,6 +16,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     boolean existsByEmail(String email);
 
+    @Query("SELECT k.id FROM Key k WHERE k.user.id = :userId")
+    List<Long> findKeyIdsByUserId(@Param("userId") Long userId);
+
 
     // findById(Long id) and save(User user) and other basic operations are already provided by JpaRepository
 }
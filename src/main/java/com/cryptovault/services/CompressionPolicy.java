@@ -0,0 +1,92 @@
+package com.cryptovault.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+/**
+ * Decides whether a document is compressed before it is encrypted. Ciphertext does not compress,
+ * so this is the only point where text-like uploads can be shrunk.
+ * <p>
+ * A document qualifies when its content type matches one of {@code content-types} ({@code text/*}
+ * matches a whole top-level type, {@code +json} a structured syntax suffix) and a deflate of the
+ * first {@code sample-bytes} saves at least {@code min-savings} of the sample.
+ */
+@Component
+public class CompressionPolicy {
+
+    public static final String DEFLATE = "DEFLATE";
+
+    @Value("${cryptovault.crypto.compression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cryptovault.crypto.compression.level:6}")
+    private int level;
+
+    @Value("${cryptovault.crypto.compression.sample-bytes:16384}")
+    private int sampleBytes;
+
+    @Value("${cryptovault.crypto.compression.min-savings:0.1}")
+    private double minSavings;
+
+    @Value("${cryptovault.crypto.compression.content-types:text/*,application/json,application/xml,+json,+xml,"
+            + "application/csv,application/x-ndjson,application/yaml,application/javascript,application/sql}")
+    private String[] contentTypes;
+
+    public int getSampleBytes() {
+        return sampleBytes;
+    }
+
+    /**
+     * Whether documents of this content type are worth sampling at all.
+     */
+    public boolean appliesTo(String contentType) {
+        if (!enabled || contentType == null) {
+            return false;
+        }
+        String type = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+        return Arrays.stream(contentTypes)
+                .map(pattern -> pattern.trim().toLowerCase(Locale.ROOT))
+                .anyMatch(pattern -> matches(pattern, type));
+    }
+
+    /**
+     * Whether the sample shrinks enough to pay for compressing the whole document.
+     */
+    public boolean isCompressible(byte[] sample) {
+        if (sample.length == 0) {
+            return false;
+        }
+        // a fast deflate is a good enough estimate of what the configured level achieves
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(sample);
+            deflater.finish();
+            byte[] scratch = new byte[8192];
+            long compressed = 0;
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(scratch);
+            }
+            return compressed <= sample.length * (1 - minSavings);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public Deflater newDeflater() {
+        return new Deflater(level);
+    }
+
+    private static boolean matches(String pattern, String type) {
+        if (pattern.startsWith("+")) {
+            return type.endsWith(pattern);
+        }
+        if (pattern.endsWith("/*")) {
+            return type.startsWith(pattern.substring(0, pattern.length() - 1));
+        }
+        return type.equals(pattern);
+    }
+}
@@ -1,82 +1,375 @@
 package com.cryptovault.services;
 
+import com.cryptovault.abstractions.IDocumentListingRepository;
 import com.cryptovault.abstractions.IDocumentRepository;
 import com.cryptovault.abstractions.IDocumentService;
 import com.cryptovault.abstractions.IKeyRepository;
 import com.cryptovault.abstractions.IFileStorageService;
-import com.cryptovault.dtos.EncryptedData;
+import com.cryptovault.dtos.BatchEncryptionResult;
+import com.cryptovault.dtos.DocumentListFilter;
+import com.cryptovault.dtos.DocumentPage;
+import com.cryptovault.dtos.DocumentSummary;
+import com.cryptovault.dtos.DocumentUpload;
+import com.cryptovault.dtos.DocumentVerificationResult;
+import com.cryptovault.dtos.FileRegion;
 import com.cryptovault.models.Document;
+import com.cryptovault.models.DocumentHashTree;
 import com.cryptovault.models.Key;
+import com.cryptovault.models.KeySecret;
+import com.cryptovault.repositories.DocumentHashTreeRepository;
+import com.cryptovault.repositories.KeySecretRepository;
+import com.cryptovault.utils.BoundedInputStream;
+import com.cryptovault.utils.CryptoMetrics;
 import com.cryptovault.utils.CryptoUtils;
+import com.cryptovault.utils.CryptoUtilsConstants;
+import com.cryptovault.utils.DigestVerifyingInputStream;
+import com.cryptovault.utils.SegmentEncryptingInputStream;
+import com.cryptovault.utils.SegmentHashTree;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.InflaterInputStream;
 
 @Service
 public class DocumentService implements IDocumentService {
+    private static final Logger logger = LoggerFactory.getLogger(DocumentService.class);
+
     private final IDocumentRepository documentRepository;
     private final IKeyRepository keyRepository;
     private final IFileStorageService fileStorageService;
     private final CryptoUtils cryptoUtils;
+    private final SessionKeyCache sessionKeyCache;
+    private final KeyMaterialCache keyMaterialCache;
+    private final ExecutorService documentPipelineExecutor;
+    private final DocumentHashTreeRepository hashTreeRepository;
+    private final GroupCommitSyncer groupCommitSyncer;
+    private final CompressionPolicy compressionPolicy;
+    private final KeyReportCache keyReportCache;
+    private final IDocumentListingRepository documentListingRepository;
+    private final KeySecretRepository keySecretRepository;
+    private final CryptoMetrics cryptoMetrics;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${cryptovault.crypto.segment-size:" + CryptoUtilsConstants.GCM_SEGMENT_SIZE + "}")
+    private int segmentSize;
+
+    @Value("${cryptovault.documents.batch.max-files:1000}")
+    private int maxBatchFiles;
+
+    @Value("${cryptovault.crypto.hash-tree.enabled:true}")
+    private boolean hashTreeEnabled;
+
+    @Value("${cryptovault.documents.list.default-limit:50}")
+    private int defaultListLimit;
+
+    @Value("${cryptovault.documents.list.max-limit:500}")
+    private int maxListLimit;
 
     public DocumentService(
             IDocumentRepository documentRepository,
             IKeyRepository keyRepository,
             IFileStorageService fileStorageService,
-            CryptoUtils cryptoUtils) {
+            CryptoUtils cryptoUtils,
+            SessionKeyCache sessionKeyCache,
+            KeyMaterialCache keyMaterialCache,
+            @Qualifier("documentPipelineExecutor") ExecutorService documentPipelineExecutor,
+            DocumentHashTreeRepository hashTreeRepository,
+            GroupCommitSyncer groupCommitSyncer,
+            CompressionPolicy compressionPolicy,
+            KeyReportCache keyReportCache,
+            IDocumentListingRepository documentListingRepository,
+            KeySecretRepository keySecretRepository,
+            CryptoMetrics cryptoMetrics,
+            PlatformTransactionManager transactionManager) {
         this.documentRepository = documentRepository;
         this.keyRepository = keyRepository;
         this.fileStorageService = fileStorageService;
         this.cryptoUtils = cryptoUtils;
+        this.sessionKeyCache = sessionKeyCache;
+        this.keyMaterialCache = keyMaterialCache;
+        this.documentPipelineExecutor = documentPipelineExecutor;
+        this.hashTreeRepository = hashTreeRepository;
+        this.groupCommitSyncer = groupCommitSyncer;
+        this.compressionPolicy = compressionPolicy;
+        this.keyReportCache = keyReportCache;
+        this.documentListingRepository = documentListingRepository;
+        this.keySecretRepository = keySecretRepository;
+        this.cryptoMetrics = cryptoMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Override
     public Document EncryptFile(byte[] plaintext, Long keyId, String filename, String contentType) throws Exception {
+        try {
+            return EncryptFile(new ByteArrayInputStream(plaintext), keyId, filename, contentType);
+        } finally {
+            Arrays.fill(plaintext, (byte) 0);
+        }
+    }
+
+    @Override
+    public Document EncryptFile(InputStream plaintext, Long keyId, String filename, String contentType) throws Exception {
+        EnvelopeKey envelopeKey = resolveEnvelopeKey(keyId);
+        SealedDocument sealed = seal(plaintext, envelopeKey, filename, contentType);
+
+        Document savedDocument;
+        try {
+            savedDocument = saveDocuments(List.of(sealed)).get(0);
+        } catch (RuntimeException e) {
+            discard(sealed);
+            throw e;
+        }
+        sessionKeyCache.put(savedDocument.getId(), keyId, sealed.sessionKey);
+        keyReportCache.invalidateKeyOwner(keyId);
+        return savedDocument;
+    }
+
+    @Override
+    public List<BatchEncryptionResult> EncryptFiles(List<DocumentUpload> uploads, Long keyId) throws Exception {
+        if (uploads == null || uploads.isEmpty()) {
+            throw new IllegalArgumentException("At least one file is required");
+        }
+        if (uploads.size() > maxBatchFiles) {
+            throw new IllegalArgumentException("Batch exceeds maximum of " + maxBatchFiles + " files");
+        }
+        EnvelopeKey envelopeKey = resolveEnvelopeKey(keyId);
+
+        // every file is hashed, encrypted, wrapped and written independently on the pipeline pool
+        List<CompletableFuture<SealedDocument>> futures = new ArrayList<>(uploads.size());
+        for (DocumentUpload upload : uploads) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                if (upload.getSize() == 0) {
+                    throw new IllegalArgumentException("File is empty");
+                }
+                try (InputStream in = upload.getSource().getInputStream()) {
+                    return seal(in, envelopeKey, upload.getFilename(), upload.getContentType());
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, documentPipelineExecutor));
+        }
+
+        BatchEncryptionResult[] results = new BatchEncryptionResult[uploads.size()];
+        List<Integer> sealedIndexes = new ArrayList<>();
+        List<SealedDocument> sealedDocuments = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                sealedDocuments.add(futures.get(i).join());
+                sealedIndexes.add(i);
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+                results[i] = BatchEncryptionResult.failed(uploads.get(i).getFilename(), cause.getMessage());
+            }
+        }
+
+        if (!sealedDocuments.isEmpty()) {
+            List<Document> savedDocuments;
+            try {
+                savedDocuments = saveDocuments(sealedDocuments);
+            } catch (RuntimeException e) {
+                sealedDocuments.forEach(this::discard);
+                for (int i : sealedIndexes) {
+                    results[i] = BatchEncryptionResult.failed(uploads.get(i).getFilename(),
+                            "Failed to store document metadata: " + e.getMessage());
+                }
+                return Arrays.asList(results);
+            }
+            for (int j = 0; j < savedDocuments.size(); j++) {
+                Document savedDocument = savedDocuments.get(j);
+                sessionKeyCache.put(savedDocument.getId(), keyId, sealedDocuments.get(j).sessionKey);
+                int i = sealedIndexes.get(j);
+                results[i] = BatchEncryptionResult.succeeded(uploads.get(i).getFilename(), savedDocument);
+            }
+            keyReportCache.invalidateKeyOwner(keyId);
+        }
+        return Arrays.asList(results);
+    }
+
+    private EnvelopeKey resolveEnvelopeKey(Long keyId) throws Exception {
+        // only RSA keys have a cached public key, so a hit needs neither a lookup nor a type check
+        PublicKey rsaPublicKey = keyMaterialCache.getPublicKey(keyId);
+        if (rsaPublicKey != null) {
+            return new EnvelopeKey(keyRepository.getReferenceById(keyId), rsaPublicKey);
+        }
+
         Key rsaKey = keyRepository.findById(keyId)
                 .orElseThrow(() -> new IllegalArgumentException("Key not found with id: " + keyId));
 
         if (rsaKey.getType() != Key.KeyType.RSA) {
             throw new IllegalArgumentException("Key must be RSA type for envelope encryption");
         }
+        return new EnvelopeKey(rsaKey, keyMaterialCache.publicKey(rsaKey));
+    }
+
+    /**
+     * Encrypts the plaintext under a fresh session key, writes the ciphertext to storage and
+     * returns the unsaved document describing it.
+     */
+    private SealedDocument seal(InputStream plaintext, EnvelopeKey envelopeKey, String filename, String contentType)
+            throws Exception {
+        Timer.Sample timing = cryptoMetrics.start();
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        SecretKey sessionAesKey = cryptoUtils.generateAesKey();
+        byte[] iv = cryptoUtils.generateIv();
+
+        byte[] wrappedKeyBytes = cryptoUtils.wrapKey(sessionAesKey.getEncoded(), envelopeKey.publicKey);
+
+        // hashing, compression, encryption and the disk write happen in one pass over the upload;
+        // the file hash is always taken over the original bytes
+        InputStream source = new DigestInputStream(plaintext, digest);
+        Deflater deflater = null;
+        if (compressionPolicy.appliesTo(contentType)) {
+            byte[] sample = source.readNBytes(compressionPolicy.getSampleBytes());
+            source = new SequenceInputStream(new ByteArrayInputStream(sample), source);
+            if (compressionPolicy.isCompressible(sample)) {
+                deflater = compressionPolicy.newDeflater();
+                source = new DeflaterInputStream(source, deflater);
+            }
+        }
 
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hashBytes = digest.digest(plaintext);
-            String fileHash = bytesToHex(hashBytes);
+        String pathEnc;
+        long originalSize;
+        SegmentEncryptingInputStream encryptedStream = cryptoUtils.encryptingStream(
+                source, sessionAesKey, iv, segmentSize, hashTreeEnabled);
+        try (encryptedStream) {
+            pathEnc = fileStorageService.save(encryptedStream);
+            originalSize = deflater != null ? deflater.getBytesRead() : encryptedStream.getPlaintextLength();
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+        String fileHash = bytesToHex(digest.digest());
+        cryptoMetrics.record(timing, CryptoMetrics.ENCRYPT, envelopeKey.algorithm, originalSize);
 
-            SecretKey sessionAesKey = cryptoUtils.generateAesKey();
+        Document document = new Document();
+        document.setFilename(filename);
+        document.setPathEnc(pathEnc);
+        document.setKey(envelopeKey.key);
+        document.setIv(iv);
+        document.setTag(encryptedStream.getFinalTag());
+        document.setWrappedKey(wrappedKeyBytes);
+        document.setFileHash(fileHash);
+        document.setOriginalSize(originalSize);
+        document.setSegmentSize(segmentSize);
+        document.setCompression(deflater != null ? CompressionPolicy.DEFLATE : null);
 
-            EncryptedData encryptedData = cryptoUtils.encryptAES(plaintext, sessionAesKey);
+        SegmentHashTree hashTree = encryptedStream.getSegmentHashTree();
+        if (hashTree != null) {
+            document.setMerkleRoot(hashTree.rootHex());
+        }
+        document.setContentType(contentType);
+
+        return new SealedDocument(document, sessionAesKey, hashTree);
+    }
+
+    /**
+     * Saves the documents and their leaf hashes in one transaction. The trees need the generated ids,
+     * so they are written after the documents, and a document with a Merkle root is never committed
+     * without its tree.
+     */
+    private List<Document> saveDocuments(List<SealedDocument> sealedDocuments) {
+        return transactionTemplate.execute(status -> {
+            List<Document> savedDocuments = documentRepository.saveAll(
+                    sealedDocuments.stream().map(sealed -> sealed.document).collect(Collectors.toList()));
+            List<DocumentHashTree> hashTrees = new ArrayList<>();
+            for (int i = 0; i < savedDocuments.size(); i++) {
+                SegmentHashTree hashTree = sealedDocuments.get(i).hashTree;
+                if (hashTree != null) {
+                    hashTrees.add(new DocumentHashTree(
+                            savedDocuments.get(i).getId(), hashTree.getSegmentCount(), hashTree.toBase64()));
+                }
+            }
+            hashTreeRepository.saveAll(hashTrees);
+            return savedDocuments;
+        });
+    }
+
+    /**
+     * Loads the document's hash tree and checks it against the recorded Merkle root,
+     * or returns null for documents without one.
+     */
+    private SegmentHashTree loadHashTree(Document document) {
+        if (document.getMerkleRoot() == null) {
+            return null;
+        }
+        DocumentHashTree stored = hashTreeRepository.findById(document.getId())
+                .orElseThrow(() -> new SecurityException("Hash tree of document " + document.getId() + " is missing"));
+        SegmentHashTree hashTree = SegmentHashTree.fromBase64(stored.getLeafHashes());
+        if (!hashTree.rootHex().equals(document.getMerkleRoot())) {
+            throw new SecurityException("Hash tree of document " + document.getId() + " does not match its Merkle root");
+        }
+        return hashTree;
+    }
 
-            PublicKey rsaPublicKey = cryptoUtils.getPublicKeyFromBytes(
-                    Base64.getDecoder().decode(rsaKey.getPublicKeyData())
-            );
-            byte[] wrappedKeyBytes = cryptoUtils.wrapKey(sessionAesKey.getEncoded(), rsaPublicKey);
+    private void discard(SealedDocument sealed) {
+        try {
+            fileStorageService.delete(sealed.document.getPathEnc());
+        } catch (IOException e) {
+            logger.warn("Failed to remove orphaned file: {}", sealed.document.getPathEnc(), e);
+        }
+    }
 
-            String pathEnc = fileStorageService.save(encryptedData.getCiphertext());
+    private static final class EnvelopeKey {
+        // on a cache hit an uninitialized reference: only its id may be read, e.g. to set the document's key
+        private final Key key;
+        private final PublicKey publicKey;
+        private final String algorithm;
 
-            Document document = new Document();
-            document.setFilename(filename);
-            document.setPathEnc(pathEnc);
-            document.setKey(rsaKey);
-            document.setIv(Base64.getEncoder().encodeToString(encryptedData.getIv()));
-            document.setTag(Base64.getEncoder().encodeToString(encryptedData.getTag()));
-            document.setWrappedKey(Base64.getEncoder().encodeToString(wrappedKeyBytes));
-            document.setFileHash(fileHash);
-            document.setOriginalSize((long) plaintext.length);
-            document.setContentType(contentType);
+        private EnvelopeKey(Key key, PublicKey publicKey) {
+            this.key = key;
+            this.publicKey = publicKey;
+            this.algorithm = CryptoMetrics.rsaAlgorithm(publicKey);
+        }
+    }
 
-            return documentRepository.save(document);
+    private static final class SealedDocument {
+        private final Document document;
+        private final SecretKey sessionKey;
+        private final SegmentHashTree hashTree;
 
-        } finally {
-            Arrays.fill(plaintext, (byte) 0);
+        private SealedDocument(Document document, SecretKey sessionKey, SegmentHashTree hashTree) {
+            this.document = document;
+            this.sessionKey = sessionKey;
+            this.hashTree = hashTree;
         }
     }
 
@@ -85,21 +378,29 @@ public class DocumentService implements IDocumentService {
         Document document = documentRepository.findById(documentId)
                 .orElseThrow(() -> new IllegalArgumentException("Document not found with id: " + documentId));
 
-        Key rsaKey = document.getKey();
-
-        PrivateKey rsaPrivateKey = cryptoUtils.getPrivateKeyFromBytes(
-                Base64.getDecoder().decode(rsaKey.getKeyData())
-        );
-
-        byte[] wrappedKeyBytes = Base64.getDecoder().decode(document.getWrappedKey());
-        SecretKey sessionAesKey = cryptoUtils.unwrapKey(wrappedKeyBytes, rsaPrivateKey);
+        SecretKey sessionAesKey = unwrapSessionKey(document);
+        byte[] iv = document.getIv();
 
-        byte[] encryptedFileContent = fileStorageService.load(document.getPathEnc());
+        if (document.getSegmentSize() != null) {
+            // plaintext is produced segment by segment while the response is being written;
+            // with a hash tree every segment is checked as it goes, otherwise the whole-file hash is checked at EOF
+            SegmentHashTree hashTree = loadHashTree(document);
+            InputStream decryptedStream = cryptoUtils.decryptingStream(
+                    fileStorageService.open(document.getPathEnc()), sessionAesKey, iv, document.getSegmentSize(),
+                    0, hashTree);
+            decryptedStream = decompressing(document, decryptedStream);
+            if (hashTree == null && document.getFileHash() != null) {
+                decryptedStream = new DigestVerifyingInputStream(decryptedStream, "SHA-256", document.getFileHash());
+            }
+            return new InputStreamResource(authenticateFirstSegment(decryptedStream));
+        }
 
-        byte[] iv = Base64.getDecoder().decode(document.getIv());
-        byte[] tag = Base64.getDecoder().decode(document.getTag());
+        // the ciphertext is decrypted straight from the page cache instead of being copied onto the heap first
+        MappedByteBuffer encryptedFileContent = fileStorageService.map(document.getPathEnc());
+        byte[] tag = document.getTag();
 
-        byte[] decryptedBytes = cryptoUtils.decryptAES(encryptedFileContent, iv, tag, sessionAesKey);
+        byte[] decryptedBytes = new byte[encryptedFileContent.remaining()];
+        cryptoUtils.decryptAES(encryptedFileContent, tag, ByteBuffer.wrap(decryptedBytes), iv, sessionAesKey);
 
         MessageDigest digest = MessageDigest.getInstance("SHA-256");
         byte[] hashBytes = digest.digest(decryptedBytes);
@@ -112,12 +413,180 @@ public class DocumentService implements IDocumentService {
         return new ByteArrayResource(decryptedBytes);
     }
 
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02x", b));
+    @Override
+    public Resource DecryptFileRange(Long documentId, long start, long end) throws Exception {
+        Document document = documentRepository.findById(documentId)
+                .orElseThrow(() -> new IllegalArgumentException("Document not found with id: " + documentId));
+
+        if (document.getSegmentSize() == null) {
+            // single-shot ciphertext can only be authenticated as a whole
+            byte[] decryptedBytes = ((ByteArrayResource) DecryptFile(documentId)).getByteArray();
+            return new ByteArrayResource(Arrays.copyOfRange(decryptedBytes, (int) start, (int) end + 1));
+        }
+
+        SegmentHashTree hashTree = loadHashTree(document);
+        SecretKey sessionAesKey = unwrapSessionKey(document);
+        byte[] iv = document.getIv();
+
+        InputStream decryptedStream;
+        long skip;
+        if (document.getCompression() != null) {
+            // compressed segments do not line up with plaintext offsets, so everything before the range is inflated and dropped
+            decryptedStream = decompressing(document, cryptoUtils.decryptingStream(
+                    fileStorageService.open(document.getPathEnc()), sessionAesKey, iv, document.getSegmentSize(),
+                    0, hashTree));
+            skip = start;
+        } else {
+            // only the segments covering [start, end] are read and authenticated
+            int segmentSize = document.getSegmentSize();
+            int firstSegment = Math.toIntExact(start / segmentSize);
+            long cipherOffset = (long) firstSegment * (segmentSize + CryptoUtilsConstants.GCM_TAG_LENGTH / 8);
+
+            decryptedStream = cryptoUtils.decryptingStream(
+                    fileStorageService.open(document.getPathEnc(), cipherOffset), sessionAesKey, iv, segmentSize,
+                    firstSegment, hashTree);
+            skip = start - (long) firstSegment * segmentSize;
+        }
+        try {
+            decryptedStream.skipNBytes(skip);
+        } catch (IOException e) {
+            decryptedStream.close();
+            throw new SecurityException("File integrity check failed! " + e.getMessage(), e);
+        }
+        return new InputStreamResource(new BoundedInputStream(authenticateFirstSegment(decryptedStream), end - start + 1));
+    }
+
+    /**
+     * Reads one byte ahead so the first segment is decrypted and authenticated now, while the
+     * controller can still answer with an error instead of a 200 whose headers are already sent.
+     */
+    private InputStream authenticateFirstSegment(InputStream decryptedStream) throws IOException {
+        PushbackInputStream primed = new PushbackInputStream(decryptedStream, 1);
+        try {
+            int first = primed.read();
+            if (first >= 0) {
+                primed.unread(first);
+            }
+        } catch (IOException e) {
+            primed.close();
+            throw new SecurityException("File integrity check failed! " + e.getMessage(), e);
+        }
+        return primed;
+    }
+
+    private InputStream decompressing(Document document, InputStream decryptedStream) {
+        if (document.getCompression() == null) {
+            return decryptedStream;
+        }
+        if (!CompressionPolicy.DEFLATE.equals(document.getCompression())) {
+            throw new IllegalStateException("Unsupported compression: " + document.getCompression());
         }
-        return sb.toString();
+        return new InflaterInputStream(decryptedStream);
+    }
+
+    @Override
+    public FileChannel OpenCiphertext(Document document) throws Exception {
+        return fileStorageService.openChannel(document.getPathEnc());
+    }
+
+    @Override
+    public FileRegion LocateCiphertext(Document document) throws Exception {
+        return fileStorageService.locate(document.getPathEnc());
+    }
+
+    @Override
+    public DocumentVerificationResult VerifyDocument(Long documentId) throws Exception {
+        Timer.Sample timing = cryptoMetrics.start();
+        Document document = getDocumentById(documentId);
+        if (document.getMerkleRoot() == null) {
+            throw new IllegalStateException("Document " + documentId + " has no segment hash tree");
+        }
+        SegmentHashTree hashTree = loadHashTree(document);
+        SecretKey sessionAesKey = unwrapSessionKey(document);
+        byte[] iv = document.getIv();
+
+        // segments are independent, so each one is read, decrypted and hashed as its own task
+        List<CompletableFuture<Boolean>> checks = new ArrayList<>(hashTree.getSegmentCount());
+        for (int i = 0; i < hashTree.getSegmentCount(); i++) {
+            int segment = i;
+            checks.add(CompletableFuture.supplyAsync(
+                    () -> verifySegment(document, sessionAesKey, iv, hashTree, segment), documentPipelineExecutor));
+        }
+
+        List<Integer> failedSegments = new ArrayList<>();
+        for (int i = 0; i < checks.size(); i++) {
+            if (!checks.get(i).join()) {
+                failedSegments.add(i);
+            }
+        }
+        cryptoMetrics.record(timing, CryptoMetrics.VERIFY, envelopeAlgorithm(document.getKey().getId()),
+                document.getOriginalSize());
+        return new DocumentVerificationResult(documentId, document.getMerkleRoot(), hashTree.getSegmentCount(),
+                failedSegments.isEmpty(), failedSegments);
+    }
+
+    private boolean verifySegment(Document document, SecretKey sessionAesKey, byte[] iv, SegmentHashTree hashTree,
+            int segment) {
+        int segmentSize = document.getSegmentSize();
+        long cipherOffset = (long) segment * (segmentSize + CryptoUtilsConstants.GCM_TAG_LENGTH / 8);
+        try (InputStream decryptedStream = cryptoUtils.decryptingStream(
+                fileStorageService.open(document.getPathEnc(), cipherOffset), sessionAesKey, iv, segmentSize,
+                segment, hashTree)) {
+            // the first read decrypts and checks exactly one segment
+            decryptedStream.read();
+            return true;
+        } catch (IOException e) {
+            logger.warn("Document {} failed verification: {}", document.getId(), e.getMessage());
+            return false;
+        } catch (GeneralSecurityException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    // taken from the cached key material, so a metric tag never initializes the lazy key association
+    private String envelopeAlgorithm(Long keyId) {
+        PrivateKey privateKey = keyMaterialCache.getPrivateKey(keyId);
+        if (privateKey != null) {
+            return CryptoMetrics.rsaAlgorithm(privateKey);
+        }
+        PublicKey publicKey = keyMaterialCache.getPublicKey(keyId);
+        return publicKey != null ? CryptoMetrics.rsaAlgorithm(publicKey) : "unknown";
+    }
+
+    private SecretKey unwrapSessionKey(Document document) throws Exception {
+        SecretKey cachedKey = sessionKeyCache.get(document.getId());
+        if (cachedKey != null) {
+            return cachedKey;
+        }
+
+        Key rsaKey = document.getKey();
+
+        // the association is a lazy proxy; its id is available without loading the key row
+        PrivateKey rsaPrivateKey = keyMaterialCache.getPrivateKey(rsaKey.getId());
+        if (rsaPrivateKey == null) {
+            rsaPrivateKey = keyMaterialCache.privateKey(rsaKey, loadKeyData(rsaKey.getId()));
+        }
+
+        byte[] wrappedKeyBytes = document.getWrappedKey();
+        Timer.Sample timing = cryptoMetrics.start();
+        SecretKey sessionAesKey = cryptoUtils.unwrapKey(wrappedKeyBytes, rsaPrivateKey);
+        cryptoMetrics.record(timing, CryptoMetrics.UNWRAP, CryptoMetrics.rsaAlgorithm(rsaPrivateKey),
+                document.getOriginalSize());
+        sessionKeyCache.put(document.getId(), rsaKey.getId(), sessionAesKey);
+        return sessionAesKey;
+    }
+
+    // the only place that reads private key material; keys the backfill has not reached yet
+    // still have it as Base64 in the keys table
+    private byte[] loadKeyData(Long keyId) {
+        return keySecretRepository.findById(keyId)
+                .map(KeySecret::getKeyData)
+                .or(() -> keyRepository.findBase64KeyData(keyId).map(Base64.getDecoder()::decode))
+                .orElseThrow(() -> new IllegalStateException("No key material stored for key " + keyId));
+    }
+
+    private String bytesToHex(byte[] bytes) {
+        return HexFormat.of().formatHex(bytes);
     }
 
     @Override
@@ -125,4 +594,51 @@ public class DocumentService implements IDocumentService {
         return documentRepository.findById(documentId)
                 .orElseThrow(() -> new IllegalArgumentException("Document not found with id: " + documentId));
     }
-}
\ No newline at end of file
+
+    @Override
+    public DocumentPage ListDocuments(DocumentListFilter filter, String cursor, Integer limit) {
+        if (filter.getUserId() == null) {
+            throw new IllegalArgumentException("userId is required");
+        }
+        int pageSize = limit == null ? defaultListLimit : limit;
+        if (pageSize < 1 || pageSize > maxListLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxListLimit);
+        }
+        if (filter.getMinSize() != null && filter.getMaxSize() != null && filter.getMinSize() > filter.getMaxSize()) {
+            throw new IllegalArgumentException("minSize must not be greater than maxSize");
+        }
+
+        LocalDateTime beforeCreatedAt = null;
+        Long beforeId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+                beforeCreatedAt = LocalDateTime.parse(position[0]);
+                beforeId = Long.parseLong(position[1]);
+            } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            // LocalDateTime parses years the database cannot bind; no cursor we issue points outside 1..9999
+            if (beforeCreatedAt.getYear() < 1 || beforeCreatedAt.getYear() > 9999 || beforeId < 1) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        // one extra row tells whether another page follows without a count query
+        List<DocumentSummary> documents = new ArrayList<>(
+                documentListingRepository.findSummaries(filter, beforeCreatedAt, beforeId, pageSize + 1));
+        String nextCursor = null;
+        if (documents.size() > pageSize) {
+            documents.remove(pageSize);
+            DocumentSummary last = documents.get(pageSize - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((last.getCreatedAt() + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        return new DocumentPage(documents, nextCursor);
+    }
+
+    @Override
+    public Map<String, Object> getDurabilityStats() {
+        return groupCommitSyncer.getStats();
+    }
+}
@@ -1,6 +1,8 @@
 package com.cryptovault.services;
 
 import com.cryptovault.abstractions.IFileStorageService;
+import com.cryptovault.abstractions.IStorageLayout;
+import com.cryptovault.dtos.FileRegion;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,11 +10,22 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class FileStorageService implements IFileStorageService {
@@ -22,6 +35,20 @@ public class FileStorageService implements IFileStorageService {
     @Value("${cryptovault.storage.path:./uploads/encrypted}")
     private String storageBasePath;
 
+    private final IStorageLayout storageLayout;
+    private final GroupCommitSyncer syncer;
+
+    // shard directories known to exist, so a save does not have to stat them again
+    private final Set<Path> knownDirectories = ConcurrentHashMap.newKeySet();
+
+    // directories whose own entry (and their parents') has been made durable by this process
+    private final Set<Path> durableDirectories = ConcurrentHashMap.newKeySet();
+
+    public FileStorageService(IStorageLayout storageLayout, GroupCommitSyncer syncer) {
+        this.storageLayout = storageLayout;
+        this.syncer = syncer;
+    }
+
     @PostConstruct
     public void init() {
         try {
@@ -38,43 +65,211 @@ public class FileStorageService implements IFileStorageService {
 
     @Override
     public String save(byte[] data) throws IOException {
-        String filename = UUID.randomUUID().toString() + ".enc";
-        Path filePath = Paths.get(storageBasePath, filename);
+        String location = newLocation();
+        Path filePath = prepare(location);
 
-        try {
-            Files.write(filePath, data, StandardOpenOption.CREATE_NEW);
-            logger.debug("Saved encrypted file: {}", filename);
-            return filename;
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            makeDurable(channel, filePath);
+            logger.debug("Saved encrypted file: {}", location);
+            return location;
         } catch (IOException e) {
-            logger.error("Failed to save file: {}", filename, e);
+            logger.error("Failed to save file: {}", location, e);
+            Files.deleteIfExists(filePath);
             throw e;
         }
     }
 
     @Override
-    public byte[] load(String filename) throws IOException {
-        Path filePath = Paths.get(storageBasePath, filename);
+    public String save(InputStream data) throws IOException {
+        String location = newLocation();
+        Path filePath = prepare(location);
 
-        if (!Files.exists(filePath)) {
-            throw new IOException("File not found: " + filename);
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long written = data.transferTo(Channels.newOutputStream(channel));
+            makeDurable(channel, filePath);
+            logger.debug("Saved encrypted file: {} ({} bytes)", location, written);
+            return location;
+        } catch (IOException e) {
+            logger.error("Failed to save file: {}", location, e);
+            Files.deleteIfExists(filePath);
+            throw e;
         }
+    }
 
+    @Override
+    public byte[] load(String location) throws IOException {
+        try (FileChannel channel = openChannel(location)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException("File too large to load into memory: " + location);
+            }
+            ByteBuffer data = ByteBuffer.allocate((int) size);
+            while (data.hasRemaining()) {
+                if (channel.read(data) < 0) {
+                    throw new IOException("Unexpected end of file: " + location);
+                }
+            }
+            logger.debug("Loaded encrypted file: {}", location);
+            return data.array();
+        } catch (IOException e) {
+            logger.error("Failed to load file: {}", location, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public InputStream open(String location) throws IOException {
+        return open(location, 0);
+    }
+
+    @Override
+    public InputStream open(String location, long offset) throws IOException {
+        FileChannel channel = openChannel(location);
         try {
-            byte[] data = Files.readAllBytes(filePath);
-            logger.debug("Loaded encrypted file: {}", filename);
-            return data;
+            if (offset > 0) {
+                channel.position(offset);
+            }
+            logger.debug("Opened encrypted file: {} at offset {}", location, offset);
+            return Channels.newInputStream(channel);
         } catch (IOException e) {
-            logger.error("Failed to load file: {}", filename, e);
+            channel.close();
             throw e;
         }
     }
 
-    public void delete(String filename) throws IOException {
-        Path filePath = Paths.get(storageBasePath, filename);
+    /**
+     * Read-only channel over the file, e.g. for {@link FileChannel#transferTo} or positional reads.
+     * A file the layout migration has just moved is still found through its old location.
+     */
+    @Override
+    public FileChannel openChannel(String location) throws IOException {
+        try {
+            return FileChannel.open(resolve(location), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            Path moved = relocated(location);
+            if (moved == null) {
+                throw new IOException("File not found: " + location, e);
+            }
+            try {
+                return FileChannel.open(moved, StandardOpenOption.READ);
+            } catch (NoSuchFileException e2) {
+                throw new IOException("File not found: " + location, e2);
+            }
+        }
+    }
 
-        if (Files.exists(filePath)) {
+    /**
+     * The file behind a location, e.g. for the container to send with sendfile; like
+     * {@link #openChannel}, a file the layout migration has just moved is found through its old location.
+     */
+    @Override
+    public FileRegion locate(String location) throws IOException {
+        Path file = resolve(location);
+        if (!Files.exists(file)) {
+            Path moved = relocated(location);
+            if (moved == null || !Files.exists(moved)) {
+                throw new IOException("File not found: " + location);
+            }
+            file = moved;
+        }
+        return new FileRegion(file.toRealPath(), 0, Files.size(file));
+    }
+
+    /**
+     * Read-only memory mapping of the whole file; the mapping stays valid after the channel is closed.
+     */
+    @Override
+    public MappedByteBuffer map(String location) throws IOException {
+        try (FileChannel channel = openChannel(location)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    public void delete(String location) throws IOException {
+        Path filePath = resolve(location);
+        if (!Files.exists(filePath)) {
+            filePath = relocated(location);
+        }
+
+        if (filePath != null && Files.exists(filePath)) {
             Files.delete(filePath);
-            logger.info("Deleted file: {}", filename);
+            logger.info("Deleted file: {}", location);
+        }
+    }
+
+    @Override
+    public String relocate(String location) throws IOException {
+        String target = storageLayout.locate(fileName(location));
+        if (target.equals(location)) {
+            return location;
+        }
+
+        Path source = resolve(location);
+        Path targetPath = prepare(target);
+        if (!Files.exists(source)) {
+            // an earlier move went through but its new location was never recorded
+            if (Files.exists(targetPath)) {
+                return target;
+            }
+            throw new IOException("File not found: " + location);
         }
+        Files.move(source, targetPath, StandardCopyOption.ATOMIC_MOVE);
+        makeDurable(null, targetPath);
+        logger.debug("Relocated encrypted file: {} -> {}", location, target);
+        return target;
+    }
+
+    private String newLocation() {
+        return storageLayout.locate(UUID.randomUUID().toString() + ".enc");
+    }
+
+    private Path resolve(String location) {
+        return Paths.get(storageBasePath, location);
+    }
+
+    private Path prepare(String location) throws IOException {
+        Path filePath = resolve(location);
+        Path directory = filePath.getParent();
+        if (directory != null && !knownDirectories.contains(directory)) {
+            Files.createDirectories(directory);
+            knownDirectories.add(directory);
+        }
+        return filePath;
+    }
+
+    /**
+     * With durable writes enabled, blocks until the file contents and its directory entry are on
+     * stable storage. The first time a shard directory is used, its ancestors up to the storage root
+     * are synced as well, so a freshly created directory cannot vanish with the file in it.
+     */
+    private void makeDurable(FileChannel channel, Path filePath) throws IOException {
+        if (!syncer.isEnabled()) {
+            return;
+        }
+        Path directory = filePath.getParent();
+        if (durableDirectories.contains(directory)) {
+            syncer.sync(channel, List.of(directory));
+            return;
+        }
+        List<Path> directories = new ArrayList<>();
+        Path root = Paths.get(storageBasePath).getParent();
+        for (Path dir = directory; dir != null && !dir.equals(root); dir = dir.getParent()) {
+            directories.add(dir);
+        }
+        syncer.sync(channel, directories);
+        durableDirectories.add(directory);
+    }
+
+    private Path relocated(String location) {
+        String current = storageLayout.locate(fileName(location));
+        return current.equals(location) ? null : resolve(current);
+    }
+
+    private static String fileName(String location) {
+        return location.substring(location.lastIndexOf('/') + 1);
     }
-}
\ No newline at end of file
+}
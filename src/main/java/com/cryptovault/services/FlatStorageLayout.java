@@ -0,0 +1,19 @@
+package com.cryptovault.services;
+
+import com.cryptovault.abstractions.IStorageLayout;
+
+/**
+ * All files in the storage root; the layout used before sharding was introduced.
+ */
+public class FlatStorageLayout implements IStorageLayout {
+
+    @Override
+    public String locate(String fileName) {
+        return fileName;
+    }
+
+    @Override
+    public boolean isFlat() {
+        return true;
+    }
+}
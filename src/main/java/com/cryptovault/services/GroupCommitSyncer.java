@@ -0,0 +1,314 @@
+package com.cryptovault.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Group commit for durable writes. Writers hand over the channel they wrote and the directories
+ * whose entries must survive a crash, then block. A single flusher thread collects the requests
+ * arriving within {@code window-ms} (up to {@code max-batch}), forces every distinct file and then
+ * every distinct directory once, and releases all writers of the batch together.
+ * <p>
+ * Concurrent appends to the same packed segment share one fsync, and uploads into the same shard
+ * directory share the directory fsync. When durable writes are disabled {@link #sync} returns at once.
+ * <p>
+ * Once the flusher has stopped, on shutdown or because it died, {@link #sync} fails instead of
+ * waiting for a batch that will never come, and writers already queued are failed as well.
+ * <p>
+ * The statistics behind {@link #getStats} are also published as {@code cryptovault.storage.durable.*} meters.
+ */
+@Component
+public class GroupCommitSyncer implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitSyncer.class);
+
+    @Value("${cryptovault.storage.durable-writes.enabled:false}")
+    private boolean enabled;
+
+    @Value("${cryptovault.storage.durable-writes.window-ms:2}")
+    private long windowMillis;
+
+    @Value("${cryptovault.storage.durable-writes.max-batch:128}")
+    private int maxBatch;
+
+    // upper bound for a writer's wait, in case the disk hangs
+    @Value("${cryptovault.storage.durable-writes.timeout-ms:30000}")
+    private long timeoutMillis;
+
+    private final BlockingQueue<SyncRequest> pending = new LinkedBlockingQueue<>();
+    private Thread flusher;
+    private volatile boolean running;
+
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder fileForces = new LongAdder();
+    private final LongAdder directoryForces = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAdder forceNanos = new LongAdder();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    private static final class SyncRequest {
+        private final FileChannel channel;
+        private final Collection<Path> directories;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private SyncRequest(FileChannel channel, Collection<Path> directories) {
+            this.channel = channel;
+            this.directories = directories;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::run, "group-commit");
+        flusher.setDaemon(true);
+        flusher.start();
+        logger.info("Durable writes enabled: group commit window {} ms, up to {} writes per fsync batch",
+                windowMillis, maxBatch);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        failPending();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Blocks until the data written to {@code channel} (which may be null) and the entries of
+     * {@code directories} are on stable storage.
+     */
+    public void sync(FileChannel channel, Collection<Path> directories) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (!running) {
+            throw shuttingDown();
+        }
+        SyncRequest request = new SyncRequest(channel, directories);
+        pending.add(request);
+        if (!running) {
+            // the flusher may have drained the queue before the request went in
+            failPending();
+        }
+        try {
+            request.done.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException("fsync failed", cause);
+        } catch (TimeoutException e) {
+            throw new IOException("Timed out after " + timeoutMillis + " ms waiting for fsync", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for fsync", e);
+        }
+    }
+
+    /**
+     * Batch size and commit latency statistics.
+     */
+    public Map<String, Object> getStats() {
+        long commitCount = commits.sum();
+        long requestCount = requests.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("window_ms", windowMillis);
+        stats.put("max_batch", maxBatch);
+        stats.put("commits", commitCount);
+        stats.put("synced_writes", requestCount);
+        stats.put("file_fsyncs", fileForces.sum());
+        stats.put("directory_fsyncs", directoryForces.sum());
+        stats.put("failed_writes", failures.sum());
+        stats.put("avg_batch_size", commitCount > 0 ? (double) requestCount / commitCount : 0);
+        stats.put("max_batch_size", maxBatchSize.get());
+        stats.put("avg_commit_latency_ms", requestCount > 0 ? latencyNanos.sum() / 1e6 / requestCount : 0);
+        stats.put("max_commit_latency_ms", maxLatencyNanos.get() / 1e6);
+        stats.put("avg_fsync_batch_ms", commitCount > 0 ? forceNanos.sum() / 1e6 / commitCount : 0);
+        stats.put("pending", pending.size());
+        stats.put("running", running);
+        return stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionTimer.builder("cryptovault.storage.durable.writes", this,
+                        syncer -> syncer.requests.sum(), syncer -> syncer.latencyNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Durable writes and the time each waited for its group commit")
+                .register(registry);
+        FunctionTimer.builder("cryptovault.storage.durable.commits", this,
+                        syncer -> syncer.commits.sum(), syncer -> syncer.forceNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Group commits and the time spent forcing their files and directories")
+                .register(registry);
+        FunctionCounter.builder("cryptovault.storage.durable.fsyncs", fileForces, LongAdder::sum)
+                .description("fsync calls issued by group commits")
+                .tag("target", "file")
+                .register(registry);
+        FunctionCounter.builder("cryptovault.storage.durable.fsyncs", directoryForces, LongAdder::sum)
+                .description("fsync calls issued by group commits")
+                .tag("target", "directory")
+                .register(registry);
+        FunctionCounter.builder("cryptovault.storage.durable.failures", failures, LongAdder::sum)
+                .description("Durable writes whose fsync failed")
+                .register(registry);
+        Gauge.builder("cryptovault.storage.durable.pending", pending, BlockingQueue::size)
+                .description("Writers waiting for the next group commit")
+                .register(registry);
+        Gauge.builder("cryptovault.storage.durable.batch.max", maxBatchSize, AtomicLong::get)
+                .description("Largest group commit so far")
+                .register(registry);
+        TimeGauge.builder("cryptovault.storage.durable.latency.max", maxLatencyNanos, TimeUnit.NANOSECONDS, AtomicLong::get)
+                .description("Longest wait of a durable write so far")
+                .register(registry);
+        Gauge.builder("cryptovault.storage.durable.running", this, syncer -> syncer.running ? 1 : 0)
+                .description("1 while the flusher accepts durable writes")
+                .register(registry);
+    }
+
+    private void run() {
+        List<SyncRequest> batch = new ArrayList<>();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(pending.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    SyncRequest next = remaining > 0 ? pending.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Group commit flusher died, durable writes now fail", e);
+        } finally {
+            running = false;
+            IOException shutdown = shuttingDown();
+            batch.forEach(request -> request.done.completeExceptionally(shutdown));
+            failPending();
+        }
+    }
+
+    private void failPending() {
+        IOException shutdown = shuttingDown();
+        SyncRequest request;
+        while ((request = pending.poll()) != null) {
+            request.done.completeExceptionally(shutdown);
+        }
+    }
+
+    private static IOException shuttingDown() {
+        return new IOException("Storage is shutting down");
+    }
+
+    private void commit(List<SyncRequest> batch) {
+        long start = System.nanoTime();
+
+        // file contents first, then the directory entries that point at them
+        Map<FileChannel, IOException> channelFailures = new IdentityHashMap<>();
+        Set<FileChannel> channels = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Path> directories = new LinkedHashSet<>();
+        for (SyncRequest request : batch) {
+            if (request.channel != null) {
+                channels.add(request.channel);
+            }
+            directories.addAll(request.directories);
+        }
+        for (FileChannel channel : channels) {
+            try {
+                channel.force(true);
+                fileForces.increment();
+            } catch (ClosedChannelException e) {
+                // only packed segments are closed early, and they are forced before being closed
+            } catch (IOException e) {
+                channelFailures.put(channel, e);
+            }
+        }
+        Map<Path, IOException> directoryFailures = new LinkedHashMap<>();
+        for (Path directory : directories) {
+            try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                channel.force(true);
+                directoryForces.increment();
+            } catch (IOException e) {
+                directoryFailures.put(directory, e);
+            }
+        }
+
+        long now = System.nanoTime();
+        forceNanos.add(now - start);
+        for (SyncRequest request : batch) {
+            IOException failure = request.channel != null ? channelFailures.get(request.channel) : null;
+            for (Path directory : request.directories) {
+                if (failure == null) {
+                    failure = directoryFailures.get(directory);
+                }
+            }
+            if (failure != null) {
+                failures.increment();
+                request.done.completeExceptionally(failure);
+            } else {
+                request.done.complete(null);
+            }
+            long latency = now - request.enqueuedAt;
+            latencyNanos.add(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+        }
+        commits.increment();
+        requests.add(batch.size());
+        maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+        if (!channelFailures.isEmpty() || !directoryFailures.isEmpty()) {
+            logger.error("fsync failed for {} file(s) and {} directory(ies)", channelFailures.size(), directoryFailures.size());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.cryptovault.services;
+
+import com.cryptovault.abstractions.IDocumentRepository;
+import com.cryptovault.abstractions.IKeyRepository;
+import com.cryptovault.models.KeySecret;
+import com.cryptovault.repositories.KeySecretRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Converts keys and documents written before V7 from the Base64 text columns to the binary ones
+ * in the background; the secret part of a key goes to {@code key_secrets}. Every run handles one batch, keys first, walking the rows by id; each row is
+ * converted by its own short update, so the tables stay available throughout. Until a row is
+ * converted, the entities decode the Base64 columns on read.
+ * <p>
+ * H2 has no Base64 decode function, so the conversion cannot be a single SQL statement in the
+ * migration itself.
+ */
+@Component
+public class KeyMaterialBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyMaterialBackfill.class);
+
+    private final IKeyRepository keyRepository;
+    private final IDocumentRepository documentRepository;
+    private final KeySecretRepository keySecretRepository;
+
+    @Value("${cryptovault.crypto.binary-backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cryptovault.crypto.binary-backfill.batch-size:500}")
+    private int batchSize;
+
+    private long lastKeyId;
+    private long lastDocumentId;
+    private boolean keysDone;
+    private long convertedInPass;
+    private long failedInPass;
+    private volatile boolean completed;
+
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    public KeyMaterialBackfill(IKeyRepository keyRepository, IDocumentRepository documentRepository,
+                               KeySecretRepository keySecretRepository) {
+        this.keyRepository = keyRepository;
+        this.documentRepository = documentRepository;
+        this.keySecretRepository = keySecretRepository;
+    }
+
+    @Scheduled(initialDelayString = "${cryptovault.crypto.binary-backfill.initial-delay-ms:20000}",
+            fixedDelayString = "${cryptovault.crypto.binary-backfill.interval-ms:5000}")
+    public void convertBatch() {
+        runLock.lock();
+        try {
+            if (!enabled || completed) {
+                return;
+            }
+            if (!keysDone) {
+                keysDone = convertKeys();
+            } else if (convertDocuments()) {
+                finishPass();
+            }
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    // true once no key is left after lastKeyId
+    private boolean convertKeys() {
+        List<Object[]> batch = keyRepository.findBase64KeyMaterial(lastKeyId, PageRequest.of(0, batchSize));
+        for (Object[] row : batch) {
+            Long id = (Long) row[0];
+            lastKeyId = id;
+            try {
+                byte[] keyData = decode((String) row[1]);
+                byte[] publicKeyData = decode((String) row[2]);
+                // the secret is stored before the Base64 copy is cleared, so a failure in
+                // between leaves a row that the next pass converts again
+                if (!keySecretRepository.existsById(id)) {
+                    keySecretRepository.save(new KeySecret(id, keyData));
+                }
+                keyRepository.storeBinaryPublicKey(id, publicKeyData);
+                if (keyRepository.clearBase64KeyData(id) == 1) {
+                    convertedInPass++;
+                }
+            } catch (RuntimeException e) {
+                failedInPass++;
+                logger.warn("Could not convert key material of key {}: {}", id, e.getMessage());
+            }
+        }
+        return batch.isEmpty();
+    }
+
+    // true once no document is left after lastDocumentId
+    private boolean convertDocuments() {
+        List<Object[]> batch = documentRepository.findBase64Envelopes(lastDocumentId, PageRequest.of(0, batchSize));
+        for (Object[] row : batch) {
+            Long id = (Long) row[0];
+            lastDocumentId = id;
+            try {
+                byte[] iv = decode((String) row[1]);
+                byte[] tag = decode((String) row[2]);
+                byte[] wrappedKey = decode((String) row[3]);
+                if (documentRepository.storeBinaryEnvelope(id, iv, tag, wrappedKey) == 1) {
+                    convertedInPass++;
+                }
+            } catch (RuntimeException e) {
+                failedInPass++;
+                logger.warn("Could not convert envelope of document {}: {}", id, e.getMessage());
+            }
+        }
+        return batch.isEmpty();
+    }
+
+    private void finishPass() {
+        logger.info("Binary key material backfill pass finished: {} row(s) converted, {} failed",
+                convertedInPass, failedInPass);
+        // failures get one more pass; rows that still cannot be converted wait for the next restart
+        completed = convertedInPass == 0 || failedInPass == 0;
+        lastKeyId = 0;
+        lastDocumentId = 0;
+        keysDone = false;
+        convertedInPass = 0;
+        failedInPass = 0;
+    }
+
+    private static byte[] decode(String base64) {
+        return base64 != null ? Base64.getDecoder().decode(base64) : null;
+    }
+}
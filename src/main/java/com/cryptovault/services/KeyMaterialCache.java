@@ -0,0 +1,112 @@
+package com.cryptovault.services;
+
+import com.cryptovault.models.Key;
+import com.cryptovault.utils.CryptoUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * LRU cache of parsed JCA key objects indexed by {@link Key#getId()}, so the ASN.1 parse of
+ * RSA keys happens once per key version instead of once per request.
+ * Each entry remembers the key version it was parsed from; an entity with a newer version
+ * replaces it, and {@link #invalidate(Long)} drops it when the key is deleted.
+ */
+@Component
+public class KeyMaterialCache {
+
+    private final CryptoUtils cryptoUtils;
+
+    @Value("${cryptovault.crypto.key-cache.max-size:512}")
+    private int maxSize;
+
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    private static final class Entry {
+        private final Long version;
+        private volatile PublicKey publicKey;
+        private volatile PrivateKey privateKey;
+
+        private Entry(Long version) {
+            this.version = version;
+        }
+    }
+
+    public KeyMaterialCache(CryptoUtils cryptoUtils) {
+        this.cryptoUtils = cryptoUtils;
+    }
+
+    /**
+     * Cached public key of an RSA key, or null if it has not been parsed yet.
+     */
+    public PublicKey getPublicKey(Long keyId) {
+        Entry entry = lookup(keyId);
+        return entry != null ? entry.publicKey : null;
+    }
+
+    /**
+     * Cached private key, or null if it has not been parsed yet.
+     */
+    public PrivateKey getPrivateKey(Long keyId) {
+        Entry entry = lookup(keyId);
+        return entry != null ? entry.privateKey : null;
+    }
+
+    public PublicKey publicKey(Key key) throws Exception {
+        Entry entry = entryFor(key);
+        PublicKey publicKey = entry.publicKey;
+        if (publicKey == null) {
+            publicKey = cryptoUtils.getPublicKeyFromBytes(key.getPublicKeyData());
+            entry.publicKey = publicKey;
+        }
+        return publicKey;
+    }
+
+    /**
+     * Parsed private key of {@code key}, parsed from {@code keyData} unless it is cached already.
+     */
+    public PrivateKey privateKey(Key key, byte[] keyData) throws Exception {
+        Entry entry = entryFor(key);
+        PrivateKey privateKey = entry.privateKey;
+        if (privateKey == null) {
+            privateKey = cryptoUtils.getPrivateKeyFromBytes(keyData);
+            entry.privateKey = privateKey;
+        }
+        return privateKey;
+    }
+
+    public synchronized void invalidate(Long keyId) {
+        entries.remove(keyId);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized Entry lookup(Long keyId) {
+        return entries.get(keyId);
+    }
+
+    private synchronized Entry entryFor(Key key) {
+        Entry entry = entries.get(key.getId());
+        if (entry == null || !Objects.equals(entry.version, key.getVersion())) {
+            entry = new Entry(key.getVersion());
+            entries.put(key.getId(), entry);
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,181 @@
+package com.cryptovault.services;
+
+import com.cryptovault.abstractions.IKeyRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of generated key reports, one per user, so repeat report requests for a user whose
+ * keys and documents have not changed are served without touching the database.
+ * <p>
+ * Every user has a generation counter that is bumped whenever their keys or documents change.
+ * A report is only stored if the generation it was built under is still current, so a report
+ * that raced with a change is never cached. Inside a transaction the bump is deferred until commit.
+ */
+@Component
+public class KeyReportCache {
+
+    private final IKeyRepository keyRepository;
+
+    @Value("${cryptovault.reports.cache.max-users:256}")
+    private int maxUsers;
+
+    // reports above this size are still served, just not kept
+    @Value("${cryptovault.reports.cache.max-report-bytes:8388608}")
+    private int maxReportBytes;
+
+    @Value("${cryptovault.reports.cache.max-key-owners:10000}")
+    private int maxKeyOwners;
+
+    // access-ordered, so the eldest entry is the least recently used one
+    private final LinkedHashMap<Long, Report> reports = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, Long> generations = new HashMap<>();
+
+    // owner of each key, so a document upload can find the report it invalidates without a query.
+    // Access-ordered and bounded like the reports, and guarded by its own monitor
+    private final LinkedHashMap<Long, Long> keyOwners = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public static final class Report {
+        private final byte[] content;
+        private final LocalDateTime generatedAt;
+
+        private Report(byte[] content, LocalDateTime generatedAt) {
+            this.content = content;
+            this.generatedAt = generatedAt;
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        public LocalDateTime getGeneratedAt() {
+            return generatedAt;
+        }
+    }
+
+    public KeyReportCache(IKeyRepository keyRepository) {
+        this.keyRepository = keyRepository;
+    }
+
+    public int getMaxReportBytes() {
+        return maxReportBytes;
+    }
+
+    public synchronized Report get(Long userId) {
+        Report report = reports.get(userId);
+        if (report == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return report;
+    }
+
+    /**
+     * Generation to pass to {@link #put} for a report that is about to be built from the database.
+     */
+    public synchronized long generation(Long userId) {
+        return generations.getOrDefault(userId, 0L);
+    }
+
+    /**
+     * Caches a report built under {@code generation} unless the user's data changed in the meantime.
+     */
+    public synchronized Report put(Long userId, long generation, byte[] content) {
+        Report report = new Report(content, LocalDateTime.now());
+        if (content.length > maxReportBytes || generation != generations.getOrDefault(userId, 0L)) {
+            return report;
+        }
+        reports.put(userId, report);
+        while (reports.size() > maxUsers) {
+            Long eldest = reports.keySet().iterator().next();
+            reports.remove(eldest);
+        }
+        return report;
+    }
+
+    public void rememberKeyOwner(Long keyId, Long userId) {
+        synchronized (keyOwners) {
+            keyOwners.put(keyId, userId);
+            while (keyOwners.size() > maxKeyOwners) {
+                Long eldest = keyOwners.keySet().iterator().next();
+                keyOwners.remove(eldest);
+            }
+        }
+    }
+
+    /**
+     * Drops the cached report of a user once the current transaction (if any) has committed.
+     */
+    public void invalidateUser(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(userId);
+                }
+            });
+        } else {
+            bump(userId);
+        }
+    }
+
+    /**
+     * Drops the cached report of the user owning the key, e.g. after a document was encrypted with it.
+     */
+    public void invalidateKeyOwner(Long keyId) {
+        Long userId;
+        synchronized (keyOwners) {
+            userId = keyOwners.get(keyId);
+        }
+        if (userId == null) {
+            // queried outside the monitor, so no thread waits on another one's database round-trip;
+            // two threads may both query a key the first time, but a key's owner never changes
+            userId = keyRepository.findUserIdById(keyId).orElse(null);
+            if (userId == null) {
+                return;
+            }
+            rememberKeyOwner(keyId, userId);
+        }
+        invalidateUser(userId);
+    }
+
+    public void forgetKey(Long keyId) {
+        synchronized (keyOwners) {
+            keyOwners.remove(keyId);
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        long cachedBytes = reports.values().stream().mapToLong(report -> report.content.length).sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", reports.size());
+        stats.put("max_users", maxUsers);
+        stats.put("cached_bytes", cachedBytes);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("invalidations", invalidations.sum());
+        synchronized (keyOwners) {
+            stats.put("key_owners", keyOwners.size());
+        }
+        return stats;
+    }
+
+    private synchronized void bump(Long userId) {
+        generations.merge(userId, 1L, Long::sum);
+        reports.remove(userId);
+        invalidations.increment();
+    }
+}
@@ -0,0 +1,223 @@
+package com.cryptovault.services;
+
+import com.cryptovault.dtos.ReportJobStatus;
+import com.cryptovault.models.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Generates key reports in the background on the bounded {@code reportExecutor}. Each job is
+ * announced on {@code /topic/reports/{userId}} when it finishes, and its result can be downloaded
+ * until {@code ttl-ms} after completion. A report that is still cached completes its job at once.
+ * <p>
+ * Finished reports are held in memory, so they are bounded by count and total size as well as by
+ * age; past either cap the oldest finished jobs are dropped. A user has at most one job queued or
+ * running at a time, and submitting again returns that job.
+ */
+@Service
+public class KeyReportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyReportJobService.class);
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    private final KeyReportService reportService;
+    private final KeyReportCache reportCache;
+    private final ExecutorService reportExecutor;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Value("${cryptovault.reports.jobs.ttl-ms:600000}")
+    private long jobTtlMillis;
+
+    @Value("${cryptovault.reports.jobs.max-retained:64}")
+    private int maxRetainedJobs;
+
+    @Value("${cryptovault.reports.jobs.max-retained-bytes:134217728}")
+    private long maxRetainedBytes;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    // the queued or running job of each user
+    private final Map<Long, Job> activeJobs = new ConcurrentHashMap<>();
+
+    private static final class Job {
+        private final String id = UUID.randomUUID().toString();
+        private final Long userId;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private volatile Status status = Status.QUEUED;
+        private volatile boolean cached;
+        private volatile LocalDateTime completedAt;
+        private volatile KeyReportCache.Report report;
+        private volatile String error;
+
+        private Job(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    public KeyReportJobService(KeyReportService reportService, KeyReportCache reportCache,
+                               @Qualifier("reportExecutor") ExecutorService reportExecutor,
+                               SimpMessagingTemplate messagingTemplate) {
+        this.reportService = reportService;
+        this.reportCache = reportCache;
+        this.reportExecutor = reportExecutor;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    /**
+     * Starts a report job for the user.
+     *
+     * @throws IllegalArgumentException if the user does not exist
+     * @throws RejectedExecutionException if the report queue is full
+     */
+    public ReportJobStatus submit(Long userId) {
+        User user = reportService.getReportUser(userId);
+        Job job = new Job(userId);
+
+        KeyReportCache.Report cached = reportCache.get(userId);
+        if (cached != null) {
+            jobs.put(job.id, job);
+            job.cached = true;
+            complete(job, cached);
+            return describe(job);
+        }
+
+        Job active = activeJobs.putIfAbsent(userId, job);
+        if (active != null) {
+            return describe(active);
+        }
+        jobs.put(job.id, job);
+        try {
+            reportExecutor.execute(() -> run(job, user));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            activeJobs.remove(userId, job);
+            throw e;
+        }
+        return describe(job);
+    }
+
+    public ReportJobStatus getStatus(String jobId) {
+        return describe(find(jobId));
+    }
+
+    /**
+     * The finished report of a job.
+     *
+     * @throws IllegalArgumentException if there is no such job
+     * @throws IllegalStateException if the job has not completed successfully
+     */
+    public KeyReportCache.Report getReport(String jobId) {
+        Job job = find(jobId);
+        if (job.status != Status.COMPLETED) {
+            throw new IllegalStateException("Report job " + jobId + " is " + job.status
+                    + (job.error != null ? ": " + job.error : ""));
+        }
+        return job.report;
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return reportCache.getStats();
+    }
+
+    @Scheduled(fixedDelayString = "${cryptovault.reports.jobs.sweep-interval-ms:60000}")
+    public void purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(jobTtlMillis * 1_000_000);
+        jobs.values().removeIf(job -> job.completedAt != null && job.completedAt.isBefore(cutoff));
+    }
+
+    private void run(Job job, User user) {
+        job.status = Status.RUNNING;
+        try {
+            complete(job, reportService.buildKeyReport(user));
+        } catch (Exception e) {
+            logger.error("Report job {} for user {} failed", job.id, job.userId, e);
+            job.error = e.getMessage();
+            job.completedAt = LocalDateTime.now();
+            job.status = Status.FAILED;
+            activeJobs.remove(job.userId, job);
+            evictFinished();
+            notifyFinished(job);
+        }
+    }
+
+    private void complete(Job job, KeyReportCache.Report report) {
+        job.report = report;
+        job.completedAt = LocalDateTime.now();
+        job.status = Status.COMPLETED;
+        activeJobs.remove(job.userId, job);
+        logger.info("Report job {} for user {} completed{}", job.id, job.userId, job.cached ? " from cache" : "");
+        evictFinished();
+        notifyFinished(job);
+    }
+
+    /**
+     * Drops the oldest finished jobs until the rest fit {@code max-retained} and {@code max-retained-bytes}.
+     * The newest one is always kept, so a job is never gone before its completion is announced.
+     */
+    private synchronized void evictFinished() {
+        List<Job> finished = jobs.values().stream()
+                .filter(job -> job.completedAt != null)
+                .sorted(Comparator.comparing((Job job) -> job.completedAt))
+                .toList();
+        long retainedBytes = finished.stream().mapToLong(KeyReportJobService::reportBytes).sum();
+        int retained = finished.size();
+        for (Job job : finished) {
+            if (retained <= 1 || (retained <= maxRetainedJobs && retainedBytes <= maxRetainedBytes)) {
+                break;
+            }
+            jobs.remove(job.id);
+            retained--;
+            retainedBytes -= reportBytes(job);
+        }
+    }
+
+    private static long reportBytes(Job job) {
+        KeyReportCache.Report report = job.report;
+        return report != null ? report.getContent().length : 0;
+    }
+
+    private void notifyFinished(Job job) {
+        try {
+            messagingTemplate.convertAndSend("/topic/reports/" + job.userId, describe(job));
+        } catch (RuntimeException e) {
+            logger.warn("Could not announce report job {}: {}", job.id, e.getMessage());
+        }
+    }
+
+    private Job find(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new IllegalArgumentException("Report job not found: " + jobId);
+        }
+        return job;
+    }
+
+    private static ReportJobStatus describe(Job job) {
+        KeyReportCache.Report report = job.report;
+        return new ReportJobStatus(
+                job.id,
+                job.userId,
+                job.status.name(),
+                job.cached,
+                job.submittedAt,
+                job.completedAt,
+                report != null ? (long) report.getContent().length : null,
+                job.status == Status.COMPLETED ? "/keys/report/jobs/" + job.id + "/download" : null,
+                job.error);
+    }
+}
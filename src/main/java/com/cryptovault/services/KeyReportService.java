@@ -0,0 +1,179 @@
+package com.cryptovault.services;
+
+import com.cryptovault.abstractions.IDocumentRepository;
+import com.cryptovault.abstractions.IKeyRepository;
+import com.cryptovault.dtos.KeySummary;
+import com.cryptovault.models.Key;
+import com.cryptovault.models.User;
+import com.cryptovault.repositories.UserRepository;
+import com.cryptovault.utils.XlsxStreamWriter;
+import com.cryptovault.utils.XlsxStreamWriter.Style;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static com.cryptovault.utils.XlsxStreamWriter.number;
+import static com.cryptovault.utils.XlsxStreamWriter.text;
+
+/**
+ * Builds the key statistics spreadsheet in-process. The summary comes from aggregate queries and the
+ * key table is read a page at a time and written to the output as it arrives, so the keys are never
+ * held in memory as a whole. Finished reports up to {@code cryptovault.reports.cache.max-report-bytes}
+ * are kept in {@link KeyReportCache} until the user's keys or documents change.
+ */
+@Service
+public class KeyReportService {
+
+    private static final DateTimeFormatter GENERATED_AT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final IKeyRepository keyRepository;
+    private final IDocumentRepository documentRepository;
+    private final UserRepository userRepository;
+    private final KeyReportCache reportCache;
+
+    @Value("${cryptovault.reports.page-size:500}")
+    private int pageSize;
+
+    public KeyReportService(IKeyRepository keyRepository, IDocumentRepository documentRepository,
+                            UserRepository userRepository, KeyReportCache reportCache) {
+        this.keyRepository = keyRepository;
+        this.documentRepository = documentRepository;
+        this.userRepository = userRepository;
+        this.reportCache = reportCache;
+    }
+
+    public User getReportUser(Long userId) {
+        return userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + userId));
+    }
+
+    /**
+     * Writes the user's report to {@code out}, from the cache if it is still current. Otherwise the
+     * report is streamed as it is generated and a copy is kept for the next request.
+     */
+    public void writeKeyReport(User user, OutputStream out) throws IOException {
+        KeyReportCache.Report cached = reportCache.get(user.getId());
+        if (cached != null) {
+            out.write(cached.getContent());
+            return;
+        }
+        long generation = reportCache.generation(user.getId());
+        CapturingOutputStream capture = new CapturingOutputStream(out, reportCache.getMaxReportBytes());
+        generate(user, capture);
+        if (!capture.overflowed) {
+            reportCache.put(user.getId(), generation, capture.captured.toByteArray());
+        }
+    }
+
+    /**
+     * Returns the user's report, from the cache if it is still current.
+     */
+    public KeyReportCache.Report buildKeyReport(User user) throws IOException {
+        KeyReportCache.Report cached = reportCache.get(user.getId());
+        if (cached != null) {
+            return cached;
+        }
+        long generation = reportCache.generation(user.getId());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generate(user, out);
+        return reportCache.put(user.getId(), generation, out.toByteArray());
+    }
+
+    private void generate(User user, OutputStream out) throws IOException {
+        long aesKeys = 0;
+        long rsaKeys = 0;
+        for (Object[] row : keyRepository.countKeysByTypeForUser(user.getId())) {
+            long count = ((Number) row[1]).longValue();
+            if (Key.KeyType.AES.name().equals(row[0])) {
+                aesKeys = count;
+            } else if (Key.KeyType.RSA.name().equals(row[0])) {
+                rsaKeys = count;
+            }
+        }
+        long totalDocuments = documentRepository.countByUserId(user.getId());
+
+        try (XlsxStreamWriter sheet = new XlsxStreamWriter(out, "Key Statistics", 15, 15, 20, 18, 22)) {
+            sheet.row(1, text("CryptoVault - Key Statistics Report", Style.TITLE));
+            sheet.merge("A1:E1");
+
+            sheet.row(3, text("User ID:", Style.BOLD), number(user.getId(), Style.DEFAULT));
+            sheet.row(4, text("Username:", Style.BOLD), text(user.getUsername()));
+            sheet.row(5, text("Report Generated:", Style.BOLD), text(LocalDateTime.now().format(GENERATED_AT)));
+
+            sheet.row(7, text("Summary Statistics", Style.SECTION));
+            sheet.row(9, text("Total Keys", Style.BOLD), number(aesKeys + rsaKeys, Style.RIGHT));
+            sheet.row(10, text("AES Keys", Style.BOLD), number(aesKeys, Style.RIGHT));
+            sheet.row(11, text("RSA Keys", Style.BOLD), number(rsaKeys, Style.RIGHT));
+            sheet.row(12, text("Total Documents", Style.BOLD), number(totalDocuments, Style.RIGHT));
+
+            sheet.row(14, text("Key Details", Style.SECTION));
+            sheet.row(16,
+                    text("Key ID", Style.HEADER),
+                    text("Type", Style.HEADER),
+                    text("Algorithm", Style.HEADER),
+                    text("Documents Count", Style.HEADER),
+                    text("Created At", Style.HEADER));
+
+            int rowNumber = 17;
+            long afterId = 0;
+            List<KeySummary> page;
+            do {
+                page = keyRepository.findSummariesByUserId(user.getId(), afterId, PageRequest.of(0, pageSize));
+                for (KeySummary key : page) {
+                    sheet.row(rowNumber++,
+                            number(key.getId(), Style.CELL),
+                            text(key.getType().toString(), Style.CELL),
+                            text(key.getAlgorithm().toString(), Style.CELL),
+                            number(key.getDocumentsCount(), Style.CELL_CENTERED),
+                            text(key.getCreatedAt().toString(), Style.CELL));
+                    afterId = key.getId();
+                    reportCache.rememberKeyOwner(key.getId(), user.getId());
+                }
+            } while (page.size() == pageSize);
+        }
+    }
+
+    // passes everything through and keeps a copy for the cache, up to a limit
+    private static final class CapturingOutputStream extends FilterOutputStream {
+        private final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        private final int limit;
+        private boolean overflowed;
+
+        private CapturingOutputStream(OutputStream out, int limit) {
+            super(out);
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            capture(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            capture(b, off, len);
+        }
+
+        private void capture(byte[] b, int off, int len) {
+            if (overflowed) {
+                return;
+            }
+            if (captured.size() + len > limit) {
+                overflowed = true;
+                captured.reset();
+                return;
+            }
+            captured.write(b, off, len);
+        }
+    }
+}
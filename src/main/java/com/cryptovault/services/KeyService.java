@@ -1,35 +1,72 @@
 package com.cryptovault.services;
 
+import com.cryptovault.abstractions.IDocumentRepository;
 import com.cryptovault.abstractions.IKeyRepository;
 import com.cryptovault.abstractions.IKeyService;
-import com.cryptovault.models.Document;
+import com.cryptovault.dtos.KeyGenerationRequest;
+import com.cryptovault.dtos.KeySummary;
 import com.cryptovault.models.Key;
+import com.cryptovault.models.KeySecret;
 import com.cryptovault.models.User;
+import com.cryptovault.repositories.KeySecretRepository;
 import com.cryptovault.repositories.UserRepository;
 import com.cryptovault.utils.CryptoUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.crypto.SecretKey;
 import java.security.KeyPair;
 import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
 @Service
 public class KeyService implements IKeyService {
     private final IKeyRepository _repository;
+    private final IDocumentRepository documentRepository;
+    private final KeySecretRepository keySecretRepository;
     private final CryptoUtils _cryptoUtils;
     private final UserRepository userRepository;
+    private final SessionKeyCache sessionKeyCache;
+    private final KeyMaterialCache keyMaterialCache;
+    private final RsaKeyPairPool rsaKeyPairPool;
+    private final KeyReportCache keyReportCache;
+    private final ExecutorService keyGenerationExecutor;
+    private final TransactionTemplate transactionTemplate;
 
-    public KeyService(IKeyRepository repository, CryptoUtils cryptoUtils, UserRepository userRepository){
+    @Value("${cryptovault.keys.batch.max-size:100}")
+    private int maxBatchSize;
+
+    public KeyService(IKeyRepository repository, IDocumentRepository documentRepository,
+                      KeySecretRepository keySecretRepository, CryptoUtils cryptoUtils, UserRepository userRepository,
+                      SessionKeyCache sessionKeyCache, KeyMaterialCache keyMaterialCache,
+                      RsaKeyPairPool rsaKeyPairPool, KeyReportCache keyReportCache,
+                      @Qualifier("keyGenerationExecutor") ExecutorService keyGenerationExecutor,
+                      PlatformTransactionManager transactionManager){
         _repository = repository;
+        this.documentRepository = documentRepository;
+        this.keySecretRepository = keySecretRepository;
         _cryptoUtils = cryptoUtils;
         this.userRepository = userRepository;
+        this.sessionKeyCache = sessionKeyCache;
+        this.keyMaterialCache = keyMaterialCache;
+        this.rsaKeyPairPool = rsaKeyPairPool;
+        this.keyReportCache = keyReportCache;
+        this.keyGenerationExecutor = keyGenerationExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     public SecretKey generateAesKey() throws NoSuchAlgorithmException {
@@ -45,7 +82,7 @@ public class KeyService implements IKeyService {
         key.setUser(user);
         key.setType(Key.KeyType.AES);
         key.setAlgorithm(Key.Algorithm.AES_256_GCM);
-        key.setKeyData(Base64.getEncoder().encodeToString(secretKey.getEncoded()));
+        key.setKeyData(secretKey.getEncoded());
         return key;
     }
 
@@ -54,8 +91,8 @@ public class KeyService implements IKeyService {
         key.setUser(user);
         key.setType(Key.KeyType.RSA);
         key.setAlgorithm(algorithm != null ? algorithm : Key.Algorithm.RSA_3072_OAEP);
-        key.setKeyData(Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
-        key.setPublicKeyData(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+        key.setKeyData(keyPair.getPrivate().getEncoded());
+        key.setPublicKeyData(keyPair.getPublic().getEncoded());
         return key;
     }
 
@@ -66,7 +103,8 @@ public class KeyService implements IKeyService {
 
         SecretKey secretKey = generateAesKey();
         Key key = createAesKeyModel(secretKey, user);
-        Key savedKey = _repository.save(key);
+        Key savedKey = saveKeys(List.of(key)).get(0);
+        keyReportCache.invalidateUser(userId);
         return savedKey;
     }
 
@@ -74,16 +112,133 @@ public class KeyService implements IKeyService {
     public Key generateAndSaveRsaKey(Long userId, Key.Algorithm algorithm) throws NoSuchAlgorithmException {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + userId));
-        KeyPair keyPair = generateRsaKeyPair();
-        Key key = createRsaKeyModel(keyPair, user, algorithm);
-        Key savedKey = _repository.save(key);
+        Key.Algorithm rsaAlgorithm = algorithm != null ? algorithm : Key.Algorithm.RSA_3072_OAEP;
+        KeyPair keyPair = rsaKeyPairPool.take(rsaAlgorithm);
+        Key key = createRsaKeyModel(keyPair, user, rsaAlgorithm);
+        Key savedKey = saveKeys(List.of(key)).get(0);
+        keyReportCache.invalidateUser(userId);
         return savedKey;
     }
 
+    /**
+     * Generates the key material of all specs in parallel on the key generation executor and
+     * persists the resulting rows in a single transaction. Specs are validated up front, so
+     * either every key is created or none is.
+     * <p>
+     * Not {@code @Transactional} itself, so no connection is held while the keys are generated;
+     * only the inserts run in the transaction.
+     */
+    public List<Key> generateAndSaveKeys(List<KeyGenerationRequest> specs) throws NoSuchAlgorithmException {
+        if (specs == null || specs.isEmpty()) {
+            throw new IllegalArgumentException("At least one key specification is required");
+        }
+        if (specs.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch size exceeds maximum of " + maxBatchSize + " keys");
+        }
+
+        List<Key.Algorithm> algorithms = new ArrayList<>(specs.size());
+        for (int i = 0; i < specs.size(); i++) {
+            algorithms.add(resolveAlgorithm(specs.get(i), i));
+        }
+
+        Set<Long> userIds = specs.stream().map(KeyGenerationRequest::getUserId).collect(Collectors.toSet());
+        Map<Long, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        for (Long userId : userIds) {
+            if (!users.containsKey(userId)) {
+                throw new IllegalArgumentException("User not found with id: " + userId);
+            }
+        }
+
+        List<CompletableFuture<Key>> futures = new ArrayList<>(specs.size());
+        for (int i = 0; i < specs.size(); i++) {
+            User user = users.get(specs.get(i).getUserId());
+            Key.Algorithm algorithm = algorithms.get(i);
+            futures.add(CompletableFuture.supplyAsync(() -> generateKeyModel(user, algorithm), keyGenerationExecutor));
+        }
+
+        List<Key> keys = new ArrayList<>(specs.size());
+        try {
+            for (CompletableFuture<Key> future : futures) {
+                keys.add(future.join());
+            }
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(false));
+            if (e.getCause() instanceof NoSuchAlgorithmException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+
+        List<Key> savedKeys = transactionTemplate.execute(status -> saveKeys(keys));
+        userIds.forEach(keyReportCache::invalidateUser);
+        return savedKeys;
+    }
+
+    /**
+     * Inserts new keys and writes their secret material to key_secrets, then drops it from the
+     * entities; from here on it is only read back on the decryption path. Must run in a transaction,
+     * otherwise a failed secret insert leaves keys behind that nothing can decrypt with.
+     */
+    private List<Key> saveKeys(List<Key> keys) {
+        List<Key> savedKeys = _repository.saveAll(keys);
+        List<KeySecret> secrets = new ArrayList<>(savedKeys.size());
+        for (int i = 0; i < savedKeys.size(); i++) {
+            secrets.add(new KeySecret(savedKeys.get(i).getId(), keys.get(i).getKeyData()));
+        }
+        keySecretRepository.saveAll(secrets);
+        keys.forEach(key -> key.setKeyData(null));
+        return savedKeys;
+    }
+
+    private Key.Algorithm resolveAlgorithm(KeyGenerationRequest spec, int index) {
+        if (spec == null || spec.getUserId() == null) {
+            throw new IllegalArgumentException("Key specification " + index + ": user_id is required");
+        }
+        if ("AES".equalsIgnoreCase(spec.getKeyType())) {
+            return Key.Algorithm.AES_256_GCM;
+        }
+        if (!"RSA".equalsIgnoreCase(spec.getKeyType())) {
+            throw new IllegalArgumentException("Key specification " + index + ": invalid key type. Must be AES or RSA");
+        }
+        if (spec.getAlgorithm() == null) {
+            return Key.Algorithm.RSA_3072_OAEP;
+        }
+        Key.Algorithm algorithm = null;
+        try {
+            algorithm = Key.Algorithm.valueOf(spec.getAlgorithm());
+        } catch (IllegalArgumentException ignored) {
+            // reported below
+        }
+        if (algorithm == null || algorithm == Key.Algorithm.AES_256_GCM) {
+            throw new IllegalArgumentException("Key specification " + index + ": invalid algorithm: " + spec.getAlgorithm());
+        }
+        return algorithm;
+    }
+
+    private Key generateKeyModel(User user, Key.Algorithm algorithm) {
+        try {
+            if (algorithm == Key.Algorithm.AES_256_GCM) {
+                return createAesKeyModel(generateAesKey(), user);
+            }
+            return createRsaKeyModel(rsaKeyPairPool.take(algorithm), user, algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    public Map<String, Object> getKeyPoolStats() {
+        return rsaKeyPairPool.getStats();
+    }
+
     public List<Key> getKeysByUserId(Long userId) {
         return _repository.findByUserId(userId);
     }
 
+    public List<KeySummary> getKeySummariesByUserId(Long userId) {
+        return _repository.findSummariesByUserId(userId);
+    }
+
     public Key getKeyByIdAndUserId(Long keyId, Long userId) {
         return _repository.findByIdAndUserId(keyId, userId)
                 .orElseThrow(() -> new IllegalArgumentException(
@@ -95,23 +250,27 @@ public class KeyService implements IKeyService {
         Key key = _repository.findByIdAndUserId(keyId, userId)
                 .orElseThrow(() -> new IllegalArgumentException(
                         "Key not found with id: " + keyId + " for user: " + userId));
-        if (!key.getDocuments().isEmpty()) {
+        if (documentRepository.existsByKeyId(keyId)) {
             throw new IllegalStateException(
-                    "Cannot delete key: it is used by " + key.getDocuments().size() + " document(s)");
+                    "Cannot delete key: it is used by " + documentRepository.countByKeyId(keyId) + " document(s)");
         }
         _repository.delete(key);
+        sessionKeyCache.invalidateKey(keyId);
+        keyMaterialCache.invalidate(keyId);
+        keyReportCache.invalidateUser(userId);
+        keyReportCache.forgetKey(keyId);
     }
 
     public Map<String, Object> getKeyStatistics(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + userId));
 
-        List<Key> allKeys = _repository.findByUserId(userId);
+        List<KeySummary> allKeys = _repository.findSummariesByUserId(userId);
 
         long totalKeys = allKeys.size();
         long aesKeys = allKeys.stream().filter(k -> k.getType() == Key.KeyType.AES).count();
         long rsaKeys = allKeys.stream().filter(k -> k.getType() == Key.KeyType.RSA).count();
-        long totalDocuments = allKeys.stream().mapToLong(k -> k.getDocuments().size()).sum();
+        long totalDocuments = allKeys.stream().mapToLong(KeySummary::getDocumentsCount).sum();
 
         List<Map<String, Object>> keysDetails = allKeys.stream()
                 .map(key -> {
@@ -119,12 +278,7 @@ public class KeyService implements IKeyService {
                     keyMap.put("id", key.getId());
                     keyMap.put("type", key.getType().toString());
                     keyMap.put("algorithm", key.getAlgorithm().toString());
-                    List<Long> documentIds = key.getDocuments().stream()
-                            .map(Document::getId)
-                            .collect(Collectors.toList());
-
-                    keyMap.put("documents", documentIds);
-                    keyMap.put("documents_count", key.getDocuments().size());
+                    keyMap.put("documents_count", key.getDocumentsCount());
                     keyMap.put("createdAt", key.getCreatedAt().toString()); // LocalDateTime → String
                     return keyMap;
                 })
@@ -0,0 +1,398 @@
+package com.cryptovault.services;
+
+import com.cryptovault.abstractions.IFileStorageService;
+import com.cryptovault.dtos.FileRegion;
+import com.cryptovault.utils.FileChannelSlice;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Stores small ciphertexts by appending them to large segment files under {@code packed/}, and
+ * hands anything above {@code threshold-bytes} to {@link FileStorageService} as a standalone blob.
+ * <p>
+ * Each record is a 4-byte big-endian length followed by the ciphertext, and is addressed by a locator
+ * {@code packed/<segment>.pack@<offset>+<length>} that is stored in {@code Document.pathEnc}.
+ * Only the newest segment is appended to; once it reaches {@code segment-max-bytes} a new one is started.
+ * Deleting a packed record does nothing on disk: the documents table decides which records are live,
+ * and {@link PackedStorageCompactor} rewrites segments that have become mostly garbage.
+ * With durable writes enabled, concurrent appends are made durable by one shared fsync of the segment.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "cryptovault.storage.packed.enabled", havingValue = "true")
+public class PackedFileStorageService implements IFileStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PackedFileStorageService.class);
+
+    static final String LOCATOR_PREFIX = "packed/";
+    private static final String SEGMENT_SUFFIX = ".pack";
+    private static final String RETIRED_SUFFIX = ".retired";
+    private static final int RECORD_HEADER_BYTES = 4;
+
+    private final FileStorageService blobStorage;
+    private final GroupCommitSyncer syncer;
+
+    @Value("${cryptovault.storage.path:./uploads/encrypted}")
+    private String storageBasePath;
+
+    // ciphertext of a document up to one 64 KiB segment (plus its tag) is packed by default
+    @Value("${cryptovault.storage.packed.threshold-bytes:65552}")
+    private int thresholdBytes;
+
+    @Value("${cryptovault.storage.packed.segment-max-bytes:268435456}")
+    private long segmentMaxBytes;
+
+    // guards the active segment; a lock rather than a monitor because appends write to disk while
+    // holding it, and a virtual thread blocked inside a monitor pins its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Path packDirectory;
+    private FileChannel activeChannel;
+    private String activeSegment;
+    private long activeSize;
+
+    public PackedFileStorageService(FileStorageService blobStorage, GroupCommitSyncer syncer) {
+        this.blobStorage = blobStorage;
+        this.syncer = syncer;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        packDirectory = Paths.get(storageBasePath, LOCATOR_PREFIX);
+        Files.createDirectories(packDirectory);
+
+        List<String> segments = listSegments();
+        if (segments.isEmpty()) {
+            startSegment(1);
+        } else {
+            String last = segments.get(segments.size() - 1);
+            openActive(last);
+        }
+        logger.info("Packed storage ready: active segment {} ({} bytes), records up to {} bytes are packed",
+                activeSegment, activeSize, thresholdBytes);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (activeChannel != null) {
+                activeChannel.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String save(byte[] data) throws IOException {
+        if (data.length > thresholdBytes) {
+            return blobStorage.save(data);
+        }
+        return appendDurably(ByteBuffer.wrap(data));
+    }
+
+    @Override
+    public String save(InputStream data) throws IOException {
+        // the size is unknown up front, so buffer just enough to tell small from large
+        byte[] head = data.readNBytes(thresholdBytes + 1);
+        if (head.length > thresholdBytes) {
+            return blobStorage.save(new SequenceInputStream(new ByteArrayInputStream(head), data));
+        }
+        return appendDurably(ByteBuffer.wrap(head));
+    }
+
+    @Override
+    public byte[] load(String path) throws IOException {
+        if (!isPacked(path)) {
+            return blobStorage.load(path);
+        }
+        try (FileChannel channel = openChannel(path)) {
+            ByteBuffer data = ByteBuffer.allocate((int) channel.size());
+            while (data.hasRemaining()) {
+                if (channel.read(data) < 0) {
+                    throw new IOException("Packed record is truncated: " + path);
+                }
+            }
+            return data.array();
+        }
+    }
+
+    @Override
+    public InputStream open(String path) throws IOException {
+        return open(path, 0);
+    }
+
+    @Override
+    public InputStream open(String path, long offset) throws IOException {
+        if (!isPacked(path)) {
+            return blobStorage.open(path, offset);
+        }
+        FileChannel channel = openChannel(path);
+        channel.position(offset);
+        return Channels.newInputStream(channel);
+    }
+
+    @Override
+    public FileChannel openChannel(String path) throws IOException {
+        if (!isPacked(path)) {
+            return blobStorage.openChannel(path);
+        }
+        Locator locator = Locator.parse(path);
+        return new FileChannelSlice(openSegment(locator.segment, path), locator.offset, locator.length);
+    }
+
+    @Override
+    public FileRegion locate(String path) throws IOException {
+        if (!isPacked(path)) {
+            return blobStorage.locate(path);
+        }
+        Locator locator = Locator.parse(path);
+        Path segment = packDirectory.resolve(locator.segment);
+        if (!Files.exists(segment)) {
+            // compacted in the meantime, but not yet purged
+            segment = packDirectory.resolve(locator.segment + RETIRED_SUFFIX);
+            if (!Files.exists(segment)) {
+                throw new IOException("File not found: " + path);
+            }
+        }
+        return new FileRegion(segment.toRealPath(), locator.offset, locator.length);
+    }
+
+    @Override
+    public MappedByteBuffer map(String path) throws IOException {
+        if (!isPacked(path)) {
+            return blobStorage.map(path);
+        }
+        try (FileChannel channel = openChannel(path)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    @Override
+    public void delete(String path) throws IOException {
+        if (!isPacked(path)) {
+            blobStorage.delete(path);
+            return;
+        }
+        logger.debug("Packed record {} left for compaction", path);
+    }
+
+    @Override
+    public String relocate(String path) throws IOException {
+        return isPacked(path) ? path : blobStorage.relocate(path);
+    }
+
+    public static boolean isPacked(String path) {
+        return path.startsWith(LOCATOR_PREFIX);
+    }
+
+    /**
+     * Segments that no longer receive appends, oldest first.
+     */
+    public List<String> sealedSegments() throws IOException {
+        lock.lock();
+        try {
+            return listSegments().stream()
+                    .filter(segment -> !segment.equals(activeSegment))
+                    .collect(Collectors.toList());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long segmentBytes(String segment) throws IOException {
+        return Files.size(packDirectory.resolve(segment));
+    }
+
+    public long segmentAgeMillis(String segment) throws IOException {
+        return System.currentTimeMillis() - Files.getLastModifiedTime(packDirectory.resolve(segment)).toMillis();
+    }
+
+    /**
+     * Common prefix of the locators of all records in a segment.
+     */
+    public String locatorPrefix(String segment) {
+        return LOCATOR_PREFIX + segment + "@";
+    }
+
+    /**
+     * Bytes a record occupies in its segment, header included.
+     */
+    public static long recordBytes(String path) {
+        return RECORD_HEADER_BYTES + Locator.parse(path).length;
+    }
+
+    /**
+     * Appends a copy of a packed record to the active segment and returns its new locator.
+     */
+    public String copyToActive(String path) throws IOException {
+        return appendDurably(ByteBuffer.wrap(load(path)));
+    }
+
+    /**
+     * Takes a compacted segment out of service. The file is only renamed, so readers that still
+     * hold an old locator keep working until {@link #purgeRetired()} runs.
+     */
+    public void retire(String segment) throws IOException {
+        lock.lock();
+        try {
+            if (segment.equals(activeSegment)) {
+                throw new IllegalStateException("The active segment cannot be retired");
+            }
+            Files.move(packDirectory.resolve(segment), packDirectory.resolve(segment + RETIRED_SUFFIX),
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long purgeRetired() throws IOException {
+        long freed = 0;
+        try (Stream<Path> files = Files.list(packDirectory)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().endsWith(RETIRED_SUFFIX))
+                    .collect(Collectors.toList())) {
+                freed += Files.size(file);
+                Files.delete(file);
+            }
+        }
+        return freed;
+    }
+
+    private String appendDurably(ByteBuffer data) throws IOException {
+        FileChannel channel;
+        String locator;
+        lock.lock();
+        try {
+            locator = append(data);
+            channel = activeChannel;
+        } finally {
+            lock.unlock();
+        }
+        // waiting happens outside the lock, so appends of other uploads join the same fsync
+        syncer.sync(channel, List.of());
+        return locator;
+    }
+
+    // called with the lock held
+    private String append(ByteBuffer data) throws IOException {
+        int length = data.remaining();
+        if (activeSize > 0 && activeSize + RECORD_HEADER_BYTES + length > segmentMaxBytes) {
+            if (syncer.isEnabled()) {
+                // writers still waiting on this segment are covered once it is closed
+                activeChannel.force(true);
+            }
+            activeChannel.close();
+            startSegment(segmentNumber(activeSegment) + 1);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES).putInt(0, length);
+        long position = activeSize;
+        try {
+            writeFully(header, position);
+            writeFully(data, position + RECORD_HEADER_BYTES);
+        } catch (IOException e) {
+            // the partial record is never referenced; the next append overwrites it
+            logger.error("Failed to append to packed segment {}", activeSegment, e);
+            throw e;
+        }
+        activeSize = position + RECORD_HEADER_BYTES + length;
+
+        String locator = locatorPrefix(activeSegment) + (position + RECORD_HEADER_BYTES) + "+" + length;
+        logger.debug("Packed {} bytes as {}", length, locator);
+        return locator;
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += activeChannel.write(buffer, position);
+        }
+    }
+
+    private FileChannel openSegment(String segment, String path) throws IOException {
+        try {
+            return FileChannel.open(packDirectory.resolve(segment), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            // compacted in the meantime, but not yet purged
+            try {
+                return FileChannel.open(packDirectory.resolve(segment + RETIRED_SUFFIX), StandardOpenOption.READ);
+            } catch (NoSuchFileException e2) {
+                throw new IOException("File not found: " + path, e2);
+            }
+        }
+    }
+
+    private void startSegment(long number) throws IOException {
+        openActive(String.format("%08d%s", number, SEGMENT_SUFFIX));
+        // the new segment's directory entry has to be durable before any record in it is acknowledged
+        syncer.sync(null, List.of(packDirectory));
+    }
+
+    private void openActive(String segment) throws IOException {
+        activeChannel = FileChannel.open(packDirectory.resolve(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeSegment = segment;
+        activeSize = activeChannel.size();
+    }
+
+    private List<String> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(packDirectory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long segmentNumber(String segment) {
+        return Long.parseLong(segment.substring(0, segment.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static final class Locator {
+        private final String segment;
+        private final long offset;
+        private final int length;
+
+        private Locator(String segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        private static Locator parse(String path) {
+            int at = path.lastIndexOf('@');
+            int plus = path.lastIndexOf('+');
+            if (!isPacked(path) || at < 0 || plus < at) {
+                throw new IllegalArgumentException("Not a packed record locator: " + path);
+            }
+            return new Locator(path.substring(LOCATOR_PREFIX.length(), at),
+                    Long.parseLong(path.substring(at + 1, plus)),
+                    Integer.parseInt(path.substring(plus + 1)));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.cryptovault.services;
+
+import com.cryptovault.abstractions.IDocumentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reclaims space in the packed store. A sealed segment whose share of records no longer referenced
+ * by any document reaches {@code min-garbage-ratio} has its live records copied to the active segment,
+ * their locators updated, and is then retired; retired segments are deleted on the following run.
+ * Segments younger than {@code min-age-ms} are skipped, so a document whose row is still being
+ * committed is never mistaken for garbage.
+ */
+@Component
+@ConditionalOnProperty(name = "cryptovault.storage.packed.enabled", havingValue = "true")
+public class PackedStorageCompactor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PackedStorageCompactor.class);
+
+    private final PackedFileStorageService packedStorage;
+    private final IDocumentRepository documentRepository;
+
+    @Value("${cryptovault.storage.packed.compaction.min-garbage-ratio:0.5}")
+    private double minGarbageRatio;
+
+    @Value("${cryptovault.storage.packed.compaction.min-age-ms:600000}")
+    private long minAgeMillis;
+
+    // a run holds this across database and file I/O, which must not pin a virtual thread
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    public PackedStorageCompactor(PackedFileStorageService packedStorage, IDocumentRepository documentRepository) {
+        this.packedStorage = packedStorage;
+        this.documentRepository = documentRepository;
+    }
+
+    @Scheduled(initialDelayString = "${cryptovault.storage.packed.compaction.interval-ms:300000}",
+            fixedDelayString = "${cryptovault.storage.packed.compaction.interval-ms:300000}")
+    public void compact() {
+        runLock.lock();
+        try {
+            long purged = packedStorage.purgeRetired();
+            if (purged > 0) {
+                logger.info("Deleted retired packed segments, {} bytes freed", purged);
+            }
+            for (String segment : packedStorage.sealedSegments()) {
+                if (packedStorage.segmentAgeMillis(segment) >= minAgeMillis) {
+                    compactSegment(segment);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Packed storage compaction failed", e);
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    private void compactSegment(String segment) throws IOException {
+        long size = packedStorage.segmentBytes(segment);
+        List<Object[]> live = documentRepository.findPathsStartingWith(packedStorage.locatorPrefix(segment));
+        long liveBytes = live.stream().mapToLong(row -> PackedFileStorageService.recordBytes((String) row[1])).sum();
+        if (size == 0 || 1.0 - (double) liveBytes / size < minGarbageRatio) {
+            return;
+        }
+
+        for (Object[] row : live) {
+            Long id = (Long) row[0];
+            String location = (String) row[1];
+            String copied = packedStorage.copyToActive(location);
+            // a document deleted in the meantime leaves its copy behind as garbage for a later run
+            documentRepository.updatePathEnc(id, location, copied);
+        }
+        packedStorage.retire(segment);
+        logger.info("Compacted packed segment {}: {} live record(s) moved, {} bytes to be freed",
+                segment, live.size(), size);
+    }
+}
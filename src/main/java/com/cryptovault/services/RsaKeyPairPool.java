@@ -0,0 +1,210 @@
+package com.cryptovault.services;
+
+import com.cryptovault.models.Key;
+import com.cryptovault.utils.CryptoUtils;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.KeyPair;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps a configurable number of pre-generated RSA key pairs per {@link Key.Algorithm}, refilled on a
+ * dedicated executor, so key provisioning requests do not pay for RSA generation on the request thread.
+ * When a pool is empty the caller generates synchronously. Depth, takes and generation time are
+ * published as {@code cryptovault.keys.pool.*} meters tagged with the algorithm.
+ */
+@Component
+public class RsaKeyPairPool implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(RsaKeyPairPool.class);
+
+    private static final Key.Algorithm[] RSA_ALGORITHMS = {Key.Algorithm.RSA_2048_OAEP, Key.Algorithm.RSA_3072_OAEP};
+
+    private final CryptoUtils cryptoUtils;
+
+    @Value("${cryptovault.keys.pool.size:4}")
+    private int targetSize;
+
+    @Value("${cryptovault.keys.pool.threads:1}")
+    private int threads;
+
+    private final Map<Key.Algorithm, Pool> pools = new EnumMap<>(Key.Algorithm.class);
+    private ExecutorService executor;
+    private final long startedAt = System.nanoTime();
+
+    private static final class Pool {
+        private final BlockingQueue<KeyPair> ready = new LinkedBlockingQueue<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LongAdder generated = new LongAdder();
+        private final LongAdder generationNanos = new LongAdder();
+        private final LongAdder served = new LongAdder();
+        private final LongAdder fallbacks = new LongAdder();
+    }
+
+    public RsaKeyPairPool(CryptoUtils cryptoUtils) {
+        this.cryptoUtils = cryptoUtils;
+        for (Key.Algorithm algorithm : RSA_ALGORITHMS) {
+            pools.put(algorithm, new Pool());
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (targetSize <= 0) {
+            logger.info("RSA key pair pool disabled");
+            return;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "rsa-pool-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        pools.keySet().forEach(this::refill);
+        logger.info("RSA key pair pool started: {} pairs per algorithm, {} thread(s)", targetSize, threads);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        pools.values().forEach(pool -> pool.ready.clear());
+    }
+
+    /**
+     * Takes a pre-generated key pair for the algorithm, or generates one on the calling thread
+     * if the pool is empty. Either way a refill is scheduled.
+     */
+    public KeyPair take(Key.Algorithm algorithm) throws NoSuchAlgorithmException {
+        Pool pool = pools.get(algorithm);
+        if (pool == null) {
+            throw new IllegalArgumentException("Not an RSA algorithm: " + algorithm);
+        }
+
+        KeyPair keyPair = pool.ready.poll();
+        refill(algorithm);
+        if (keyPair != null) {
+            pool.served.increment();
+            return keyPair;
+        }
+
+        pool.fallbacks.increment();
+        logger.debug("RSA key pair pool for {} is empty, generating synchronously", algorithm);
+        return cryptoUtils.generateRsaKeyPair(algorithm.getKeySize());
+    }
+
+    /**
+     * Pool depth and refill statistics per algorithm.
+     */
+    public Map<String, Object> getStats() {
+        double elapsedMinutes = (System.nanoTime() - startedAt) / 60e9;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        pools.forEach((algorithm, pool) -> {
+            long generated = pool.generated.sum();
+            Map<String, Object> poolStats = new LinkedHashMap<>();
+            poolStats.put("depth", pool.ready.size());
+            poolStats.put("target_size", Math.max(0, targetSize));
+            poolStats.put("in_flight", pool.inFlight.get());
+            poolStats.put("generated", generated);
+            poolStats.put("served_from_pool", pool.served.sum());
+            poolStats.put("synchronous_fallbacks", pool.fallbacks.sum());
+            poolStats.put("refill_rate_per_minute", elapsedMinutes > 0 ? generated / elapsedMinutes : 0);
+            poolStats.put("avg_generation_ms", generated > 0 ? pool.generationNanos.sum() / 1e6 / generated : 0);
+            stats.put(algorithm.name(), poolStats);
+        });
+        return stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        pools.forEach((algorithm, pool) -> {
+            String tag = algorithm.name();
+            Gauge.builder("cryptovault.keys.pool.depth", pool.ready, BlockingQueue::size)
+                    .description("Pre-generated key pairs ready to be served")
+                    .tag("algorithm", tag)
+                    .register(registry);
+            Gauge.builder("cryptovault.keys.pool.in.flight", pool.inFlight, AtomicInteger::get)
+                    .description("Key pairs being generated in the background")
+                    .tag("algorithm", tag)
+                    .register(registry);
+            FunctionCounter.builder("cryptovault.keys.pool.takes", pool.served, LongAdder::sum)
+                    .description("Key pairs handed out, by whether the pool had one ready")
+                    .tags("algorithm", tag, "source", "pool")
+                    .register(registry);
+            FunctionCounter.builder("cryptovault.keys.pool.takes", pool.fallbacks, LongAdder::sum)
+                    .description("Key pairs handed out, by whether the pool had one ready")
+                    .tags("algorithm", tag, "source", "synchronous")
+                    .register(registry);
+            FunctionTimer.builder("cryptovault.keys.pool.generation", pool,
+                            p -> p.generated.sum(), p -> p.generationNanos.sum(), TimeUnit.NANOSECONDS)
+                    .description("Background key pair generation")
+                    .tag("algorithm", tag)
+                    .register(registry);
+        });
+    }
+
+    public int depth(Key.Algorithm algorithm) {
+        Pool pool = pools.get(algorithm);
+        return pool != null ? pool.ready.size() : 0;
+    }
+
+    private void refill(Key.Algorithm algorithm) {
+        if (executor == null || executor.isShutdown()) {
+            return;
+        }
+        Pool pool = pools.get(algorithm);
+        while (true) {
+            int pending = pool.inFlight.get();
+            if (pool.ready.size() + pending >= targetSize) {
+                return;
+            }
+            if (!pool.inFlight.compareAndSet(pending, pending + 1)) {
+                continue;
+            }
+            try {
+                executor.execute(() -> generateInto(algorithm, pool));
+            } catch (RejectedExecutionException e) {
+                pool.inFlight.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    private void generateInto(Key.Algorithm algorithm, Pool pool) {
+        try {
+            long start = System.nanoTime();
+            KeyPair keyPair = cryptoUtils.generateRsaKeyPair(algorithm.getKeySize());
+            pool.generationNanos.add(System.nanoTime() - start);
+            pool.generated.increment();
+            pool.ready.offer(keyPair);
+        } catch (Exception e) {
+            logger.error("Failed to pre-generate {} key pair", algorithm, e);
+        } finally {
+            pool.inFlight.decrementAndGet();
+        }
+    }
+}
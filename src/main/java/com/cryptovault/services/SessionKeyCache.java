@@ -0,0 +1,184 @@
+package com.cryptovault.services;
+
+import com.cryptovault.utils.CryptoUtilsConstants;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded, TTL-expiring LRU cache of unwrapped document session keys, so repeat downloads
+ * of a document skip the RSA-OAEP unwrap. Raw key bytes are zeroized whenever an entry leaves
+ * the cache. Disabled unless {@code cryptovault.crypto.session-key-cache.enabled} is set.
+ * Hits, misses, evictions and size are published as {@code cryptovault.session.key.cache.*} meters.
+ */
+@Component
+public class SessionKeyCache implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionKeyCache.class);
+
+    @Value("${cryptovault.crypto.session-key-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${cryptovault.crypto.session-key-cache.max-size:1024}")
+    private int maxSize;
+
+    @Value("${cryptovault.crypto.session-key-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    // access-ordered, so the eldest entry is the least recently used one
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static final class Entry {
+        private final Long keyId;
+        private final byte[] keyBytes;
+        private final long expiresAt;
+
+        private Entry(Long keyId, byte[] keyBytes, long expiresAt) {
+            this.keyId = keyId;
+            this.keyBytes = keyBytes;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized SecretKey get(Long documentId) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = entries.get(documentId);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt - System.nanoTime() <= 0) {
+            discard(entries.remove(documentId));
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return new SecretKeySpec(entry.keyBytes, CryptoUtilsConstants.AES_ALGORITHM);
+    }
+
+    public synchronized void put(Long documentId, Long keyId, SecretKey sessionKey) {
+        if (!enabled) {
+            return;
+        }
+        long expiresAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds);
+        Entry previous = entries.put(documentId, new Entry(keyId, sessionKey.getEncoded(), expiresAt));
+        if (previous != null) {
+            wipe(previous);
+        }
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxSize && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            discard(entry);
+        }
+    }
+
+    public synchronized void invalidateDocument(Long documentId) {
+        Entry entry = entries.remove(documentId);
+        if (entry != null) {
+            wipe(entry);
+        }
+    }
+
+    public synchronized void invalidateKey(Long keyId) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.keyId.equals(keyId)) {
+                it.remove();
+                wipe(entry);
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        entries.values().forEach(this::wipe);
+        entries.clear();
+    }
+
+    @Scheduled(fixedDelayString = "${cryptovault.crypto.session-key-cache.sweep-interval-ms:60000}")
+    public synchronized void evictExpired() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Long, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next().getValue();
+            if (entry.expiresAt - now <= 0) {
+                it.remove();
+                discard(entry);
+            }
+        }
+        logger.debug("Session key cache: size={}, hits={}, misses={}, evictions={}",
+                entries.size(), getHits(), getMisses(), getEvictions());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cryptovault.session.key.cache.requests", hits, LongAdder::sum)
+                .description("Session key lookups, by whether the unwrapped key was cached")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cryptovault.session.key.cache.requests", misses, LongAdder::sum)
+                .description("Session key lookups, by whether the unwrapped key was cached")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cryptovault.session.key.cache.evictions", evictions, LongAdder::sum)
+                .description("Session keys dropped because they expired or the cache was full")
+                .register(registry);
+        Gauge.builder("cryptovault.session.key.cache.size", this, SessionKeyCache::size)
+                .description("Session keys currently cached")
+                .register(registry);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private void discard(Entry entry) {
+        wipe(entry);
+        evictions.increment();
+    }
+
+    private void wipe(Entry entry) {
+        Arrays.fill(entry.keyBytes, (byte) 0);
+    }
+}
@@ -0,0 +1,44 @@
+package com.cryptovault.services;
+
+import com.cryptovault.abstractions.IStorageLayout;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Spreads files over nested directories named by the leading bytes of the SHA-256 of the file name,
+ * e.g. {@code 3f/a2/<name>} with two levels. Each level has at most 256 entries, so directories stay
+ * small no matter how many documents are stored.
+ */
+public class ShardedStorageLayout implements IStorageLayout {
+
+    private final int levels;
+
+    public ShardedStorageLayout(int levels) {
+        if (levels < 1 || levels > 4) {
+            throw new IllegalArgumentException("Shard levels must be between 1 and 4");
+        }
+        this.levels = levels;
+    }
+
+    @Override
+    public String locate(String fileName) {
+        byte[] hash = sha256(fileName);
+        StringBuilder location = new StringBuilder(levels * 3 + fileName.length());
+        for (int i = 0; i < levels; i++) {
+            HexFormat.of().toHexDigits(location, hash[i]);
+            location.append('/');
+        }
+        return location.append(fileName).toString();
+    }
+
+    private static byte[] sha256(String fileName) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(fileName.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.cryptovault.services;
+
+import com.cryptovault.abstractions.IDocumentRepository;
+import com.cryptovault.abstractions.IFileStorageService;
+import com.cryptovault.abstractions.IStorageLayout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves files written by the flat layout into their shard directories in the background and
+ * records the new location in {@code Document.pathEnc}. Every run handles one batch, walking the
+ * documents by id; once a full pass finds nothing left to move, the migrator stops.
+ * <p>
+ * A file is moved before its row is updated. If the update is lost, readers still find the file
+ * through the storage service's fallback and the next pass records the location.
+ */
+@Component
+public class StorageLayoutMigrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageLayoutMigrator.class);
+
+    private final IDocumentRepository documentRepository;
+    private final IFileStorageService fileStorageService;
+    private final IStorageLayout storageLayout;
+
+    @Value("${cryptovault.storage.migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cryptovault.storage.migration.batch-size:500}")
+    private int batchSize;
+
+    private long lastId;
+    private long movedInPass;
+    private long failedInPass;
+    private volatile boolean completed;
+
+    // a run holds this across database and file I/O, which must not pin a virtual thread
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    public StorageLayoutMigrator(
+            IDocumentRepository documentRepository,
+            IFileStorageService fileStorageService,
+            IStorageLayout storageLayout) {
+        this.documentRepository = documentRepository;
+        this.fileStorageService = fileStorageService;
+        this.storageLayout = storageLayout;
+    }
+
+    @Scheduled(initialDelayString = "${cryptovault.storage.migration.initial-delay-ms:30000}",
+            fixedDelayString = "${cryptovault.storage.migration.interval-ms:10000}")
+    public void migrateBatch() {
+        runLock.lock();
+        try {
+            if (!enabled || completed || storageLayout.isFlat()) {
+                return;
+            }
+
+            List<Object[]> batch = documentRepository.findUnshardedPaths(lastId, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                finishPass();
+                return;
+            }
+
+            for (Object[] row : batch) {
+                Long id = (Long) row[0];
+                String location = (String) row[1];
+                lastId = id;
+                try {
+                    String moved = fileStorageService.relocate(location);
+                    if (documentRepository.updatePathEnc(id, location, moved) == 1) {
+                        movedInPass++;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failedInPass++;
+                    logger.warn("Could not move file of document {} into its shard: {}", id, e.getMessage());
+                }
+            }
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    private void finishPass() {
+        logger.info("Storage layout migration pass finished: {} file(s) moved, {} failed", movedInPass, failedInPass);
+        // failures get one more pass; files that still cannot be moved wait for the next restart
+        completed = movedInPass == 0 || failedInPass == 0;
+        lastId = 0;
+        movedInPass = 0;
+        failedInPass = 0;
+    }
+}
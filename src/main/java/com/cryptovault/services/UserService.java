@@ -16,9 +16,16 @@ public class UserService {
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
     private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
     private final UserRepository userRepository;
+    private final SessionKeyCache sessionKeyCache;
+    private final KeyMaterialCache keyMaterialCache;
+    private final KeyReportCache keyReportCache;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, SessionKeyCache sessionKeyCache,
+                       KeyMaterialCache keyMaterialCache, KeyReportCache keyReportCache) {
         this.userRepository = userRepository;
+        this.sessionKeyCache = sessionKeyCache;
+        this.keyMaterialCache = keyMaterialCache;
+        this.keyReportCache = keyReportCache;
     }
 
     public User createUser(User user) {
@@ -46,7 +53,15 @@ public class UserService {
 
     public void deleteUser(Long id) {
         if (userRepository.existsById(id)) {
+            // keys and documents go with the user through ON DELETE CASCADE
+            List<Long> keyIds = userRepository.findKeyIdsByUserId(id);
             userRepository.deleteById(id);
+            keyIds.forEach(keyId -> {
+                sessionKeyCache.invalidateKey(keyId);
+                keyMaterialCache.invalidate(keyId);
+                keyReportCache.forgetKey(keyId);
+            });
+            keyReportCache.invalidateUser(id);
         } else {
             throw new IllegalArgumentException("User with id " + id + " not found");
         }
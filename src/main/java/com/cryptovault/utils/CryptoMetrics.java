@@ -0,0 +1,77 @@
+package com.cryptovault.utils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.security.Key;
+import java.security.interfaces.RSAKey;
+import java.time.Duration;
+
+/**
+ * Latency of the crypto operations themselves, as the {@code cryptovault.crypto.operations} timer
+ * tagged with the operation, the algorithm of the envelope key and a size bucket of the document.
+ * Unlike the per-method service timers, these separate a 3072-bit unwrap from a 2048-bit one and a
+ * 100 KB upload from a 40 MB one.
+ */
+@Component
+public class CryptoMetrics {
+
+    public static final String ENCRYPT = "encrypt";
+    public static final String VERIFY = "verify";
+    public static final String UNWRAP = "unwrap";
+
+    private static final String METRIC_NAME = "cryptovault.crypto.operations";
+
+    private static final long KIB = 1024;
+    private static final long MIB = 1024 * KIB;
+
+    private final MeterRegistry meterRegistry;
+
+    public CryptoMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void record(Timer.Sample sample, String operation, String algorithm, Long documentSize) {
+        sample.stop(Timer.builder(METRIC_NAME)
+                .description("Latency of encryption, verification and key unwrap operations")
+                .tag("operation", operation)
+                .tag("algorithm", algorithm)
+                .tag("size", sizeBucket(documentSize))
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(60))
+                .register(meterRegistry));
+    }
+
+    /**
+     * Name of the RSA algorithm a public or private key belongs to, e.g. {@code RSA_3072_OAEP}, taken
+     * from its modulus, so tagging a timer never needs the key entity.
+     */
+    public static String rsaAlgorithm(Key key) {
+        if (key instanceof RSAKey rsaKey) {
+            return "RSA_" + rsaKey.getModulus().bitLength() + "_OAEP";
+        }
+        return key.getAlgorithm();
+    }
+
+    static String sizeBucket(Long bytes) {
+        if (bytes == null) {
+            return "unknown";
+        }
+        if (bytes <= 64 * KIB) {
+            return "0-64KiB";
+        }
+        if (bytes <= MIB) {
+            return "64KiB-1MiB";
+        }
+        if (bytes <= 16 * MIB) {
+            return "1MiB-16MiB";
+        }
+        return "16MiB+";
+    }
+}
@@ -10,6 +10,8 @@ import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.OAEPParameterSpec;
 import javax.crypto.spec.PSource;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.security.*;
 import java.security.spec.MGF1ParameterSpec;
 import java.security.spec.PKCS8EncodedKeySpec;
@@ -29,6 +31,26 @@ public class CryptoUtils {
     private static final int GCM_TAG_LENGTH = 128;
     private static final int RSA_KEY_SIZE = 3072;
 
+    private static final OAEPParameterSpec OAEP_PARAMS = new OAEPParameterSpec(
+            "SHA-256",
+            "MGF1",
+            MGF1ParameterSpec.SHA256,
+            PSource.PSpecified.DEFAULT
+    );
+
+    // Cipher and SecureRandom lookups are costly; each thread keeps and re-initialises its own instances
+    private static final ThreadLocal<Cipher> AES_CIPHER = ThreadLocal.withInitial(() -> newCipher(AES_TRANSFORMATION));
+    private static final ThreadLocal<Cipher> RSA_CIPHER = ThreadLocal.withInitial(() -> newCipher(RSA_TRANSFORMATION));
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+    private static Cipher newCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cipher not available: " + transformation, e);
+        }
+    }
+
     public SecretKey generateAesKey() throws NoSuchAlgorithmException {
         KeyGenerator keyGen = KeyGenerator.getInstance(AES_ALGO);
         keyGen.init(AES_KEY_SIZE);
@@ -36,39 +58,106 @@ public class CryptoUtils {
     }
 
     public EncryptedData encryptAES(byte[] plaintext, SecretKey key) throws Exception {
-        byte[] iv = new byte[GCM_IV_LENGTH];
-        new SecureRandom().nextBytes(iv);
+        byte[] iv = generateIv();
 
-        Cipher cipher = Cipher.getInstance(AES_TRANSFORMATION);
-        GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-        cipher.init(Cipher.ENCRYPT_MODE, key, spec);
+        Cipher cipher = AES_CIPHER.get();
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
 
         byte[] cipherTextWithTag = cipher.doFinal(plaintext);
 
-        int tagLengthBytes = GCM_TAG_LENGTH / 8;
-        int cipherTextLength = cipherTextWithTag.length - tagLengthBytes;
+        return new EncryptedData(cipherTextWithTag, iv);
+    }
 
-        byte[] actualCipherText = Arrays.copyOfRange(cipherTextWithTag, 0, cipherTextLength);
-        byte[] tag = Arrays.copyOfRange(cipherTextWithTag, cipherTextLength, cipherTextWithTag.length);
+    public byte[] decryptAES(byte[] cipherText, byte[] iv, byte[] tag, SecretKey key) throws Exception {
+        Cipher cipher = AES_CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+
+        // feeding the tag separately avoids building a concatenated copy of the ciphertext
+        byte[] plaintext = new byte[cipherText.length];
+        int written = cipher.update(cipherText, 0, cipherText.length, plaintext, 0);
+        cipher.doFinal(tag, 0, tag.length, plaintext, written);
+        return plaintext;
+    }
 
-        return new EncryptedData(actualCipherText, iv, tag);
+    /**
+     * Encrypts the remaining bytes of {@code plaintext} into {@code output} as {@code ciphertext || tag}.
+     * Both buffers may be direct, and {@code output} may share its backing storage with
+     * {@code plaintext} for in-place encryption; it needs {@code plaintext.remaining() + 16} bytes free.
+     *
+     * @return number of bytes written to {@code output}
+     */
+    public int encryptAES(ByteBuffer plaintext, ByteBuffer output, byte[] iv, SecretKey key)
+            throws GeneralSecurityException {
+        Cipher cipher = AES_CIPHER.get();
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+        return cipher.doFinal(plaintext, output);
     }
 
-    public byte[] decryptAES(byte[] cipherText, byte[] iv, byte[] tag, SecretKey key) throws Exception {
-        Cipher cipher = Cipher.getInstance(AES_TRANSFORMATION);
-        GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-        cipher.init(Cipher.DECRYPT_MODE, key, spec);
+    /**
+     * Decrypts the remaining {@code ciphertext || tag} bytes of {@code ciphertextWithTag} into {@code output},
+     * which may share backing storage with the input. Nothing is written if the tag does not verify.
+     *
+     * @return number of plaintext bytes written to {@code output}
+     */
+    public int decryptAES(ByteBuffer ciphertextWithTag, ByteBuffer output, byte[] iv, SecretKey key)
+            throws GeneralSecurityException {
+        Cipher cipher = AES_CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+        return cipher.doFinal(ciphertextWithTag, output);
+    }
+
+    /**
+     * Decrypts the remaining bytes of {@code ciphertext}, whose tag is kept separately, into {@code output}.
+     * Works directly on direct or memory-mapped buffers.
+     *
+     * @return number of plaintext bytes written to {@code output}
+     */
+    public int decryptAES(ByteBuffer ciphertext, byte[] tag, ByteBuffer output, byte[] iv, SecretKey key)
+            throws GeneralSecurityException {
+        Cipher cipher = AES_CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+        int written = cipher.update(ciphertext, output);
+        return written + cipher.doFinal(ByteBuffer.wrap(tag), output);
+    }
+
+    public byte[] generateIv() {
+        byte[] iv = new byte[GCM_IV_LENGTH];
+        RANDOM.get().nextBytes(iv);
+        return iv;
+    }
+
+    public SegmentEncryptingInputStream encryptingStream(InputStream plaintext, SecretKey key, byte[] baseIv,
+            int segmentSize) throws GeneralSecurityException {
+        return new SegmentEncryptingInputStream(plaintext, key, baseIv, segmentSize);
+    }
 
-        byte[] cipherTextWithTag = new byte[cipherText.length + tag.length];
-        System.arraycopy(cipherText, 0, cipherTextWithTag, 0, cipherText.length);
-        System.arraycopy(tag, 0, cipherTextWithTag, cipherText.length, tag.length);
+    public SegmentEncryptingInputStream encryptingStream(InputStream plaintext, SecretKey key, byte[] baseIv,
+            int segmentSize, boolean hashSegments) throws GeneralSecurityException {
+        return new SegmentEncryptingInputStream(plaintext, key, baseIv, segmentSize, hashSegments);
+    }
 
-        return cipher.doFinal(cipherTextWithTag);
+    public SegmentDecryptingInputStream decryptingStream(InputStream ciphertext, SecretKey key, byte[] baseIv,
+            int segmentSize) throws GeneralSecurityException {
+        return new SegmentDecryptingInputStream(ciphertext, key, baseIv, segmentSize);
+    }
+
+    public SegmentDecryptingInputStream decryptingStream(InputStream ciphertext, SecretKey key, byte[] baseIv,
+            int segmentSize, int firstSegment) throws GeneralSecurityException {
+        return new SegmentDecryptingInputStream(ciphertext, key, baseIv, segmentSize, firstSegment);
+    }
+
+    public SegmentDecryptingInputStream decryptingStream(InputStream ciphertext, SecretKey key, byte[] baseIv,
+            int segmentSize, int firstSegment, SegmentHashTree hashTree) throws GeneralSecurityException {
+        return new SegmentDecryptingInputStream(ciphertext, key, baseIv, segmentSize, firstSegment, hashTree);
     }
 
     public KeyPair generateRsaKeyPair() throws NoSuchAlgorithmException {
+        return generateRsaKeyPair(RSA_KEY_SIZE);
+    }
+
+    public KeyPair generateRsaKeyPair(int keySize) throws NoSuchAlgorithmException {
         KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
-        keyGen.initialize(RSA_KEY_SIZE);
+        keyGen.initialize(keySize);
         return keyGen.generateKeyPair();
     }
 
@@ -85,29 +174,21 @@ public class CryptoUtils {
     }
 
     public byte[] wrapKey(byte[] keyBytesToWrap, PublicKey publicKey) throws Exception {
-        Cipher cipher = Cipher.getInstance(RSA_TRANSFORMATION);
-        OAEPParameterSpec oaepParams = new OAEPParameterSpec(
-                "SHA-256",
-                "MGF1",
-                new MGF1ParameterSpec("SHA-256"),
-                PSource.PSpecified.DEFAULT
-        );
-        cipher.init(Cipher.ENCRYPT_MODE, publicKey, oaepParams);
+        Cipher cipher = RSA_CIPHER.get();
+        cipher.init(Cipher.ENCRYPT_MODE, publicKey, OAEP_PARAMS);
 
         return cipher.doFinal(keyBytesToWrap);
     }
 
     public SecretKey unwrapKey(byte[] wrappedKeyBytes, PrivateKey privateKey) throws Exception {
-        Cipher cipher = Cipher.getInstance(RSA_TRANSFORMATION);
-        OAEPParameterSpec oaepParams = new OAEPParameterSpec(
-                "SHA-256",
-                "MGF1",
-                new MGF1ParameterSpec("SHA-256"),
-                PSource.PSpecified.DEFAULT
-        );
-        cipher.init(Cipher.DECRYPT_MODE, privateKey, oaepParams);
+        Cipher cipher = RSA_CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, privateKey, OAEP_PARAMS);
 
         byte[] decodedKeyBytes = cipher.doFinal(wrappedKeyBytes);
-        return new SecretKeySpec(decodedKeyBytes, AES_ALGO);
+        try {
+            return new SecretKeySpec(decodedKeyBytes, AES_ALGO);
+        } finally {
+            Arrays.fill(decodedKeyBytes, (byte) 0);
+        }
     }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ public class CryptoUtilsConstants {
     public static final int RSA_KEY_SIZE = 3072;
     public static final int GCM_IV_LENGTH = 12;
     public static final int GCM_TAG_LENGTH = 128;
+    public static final int GCM_SEGMENT_SIZE = 64 * 1024;
 
     public static final String AES_ALGORITHM = "AES";
     public static final String AES_GCM_TRANSFORM = "AES/GCM/NoPadding";
@@ -0,0 +1,69 @@
+package com.cryptovault.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Passes bytes through while hashing them and compares the digest with the expected
+ * value when the underlying stream reaches EOF. A mismatch is reported as an
+ * {@link IOException} from the final read, so a response being streamed to the client is aborted.
+ */
+public class DigestVerifyingInputStream extends FilterInputStream {
+
+    private final MessageDigest digest;
+    private final byte[] expected;
+    private boolean verified;
+
+    public DigestVerifyingInputStream(InputStream in, String algorithm, String expectedHex)
+            throws NoSuchAlgorithmException {
+        super(in);
+        this.digest = MessageDigest.getInstance(algorithm);
+        this.expected = HexFormat.of().parseHex(expectedHex);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            verify();
+        } else {
+            digest.update((byte) b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n == -1) {
+            verify();
+        } else {
+            digest.update(b, off, n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        throw new IOException("Skipping would bypass digest verification");
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void verify() throws IOException {
+        if (verified) {
+            return;
+        }
+        verified = true;
+        if (!MessageDigest.isEqual(digest.digest(), expected)) {
+            throw new IOException("File integrity check failed! File may be corrupted or tampered.");
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.cryptovault.utils;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Reverses {@link SegmentEncryptingInputStream}: reads segmented AES-GCM ciphertext and
+ * yields plaintext one authenticated segment at a time. No byte of a segment is returned
+ * before its tag has been verified; a segment that fails authentication, or a ciphertext
+ * that ends without a final segment, surfaces as an {@link IOException}.
+ * If a {@link SegmentHashTree} is given, each decrypted segment is also checked against its leaf hash.
+ */
+public class SegmentDecryptingInputStream extends InputStream {
+
+    private static final int TAG_BYTES = CryptoUtilsConstants.GCM_TAG_LENGTH / 8;
+
+    private final InputStream source;
+    private final SecretKey key;
+    private final byte[] baseIv;
+    private final byte[] segmentIv;
+    private final int segmentSize;
+    private final Cipher cipher;
+    private final SegmentHashTree hashTree;
+    private final MessageDigest segmentDigest;
+
+    // one extra byte of lookahead tells whether the current segment is the final one
+    private final byte[] cipherBuffer;
+    private final byte[] plainBuffer;
+    private int carried;
+
+    private int plainPos;
+    private int plainLimit;
+    private int segmentIndex;
+    private boolean finished;
+
+    public SegmentDecryptingInputStream(InputStream source, SecretKey key, byte[] baseIv, int segmentSize)
+            throws GeneralSecurityException {
+        this(source, key, baseIv, segmentSize, 0);
+    }
+
+    /**
+     * Starts decrypting at {@code firstSegment}; {@code source} must be positioned at that segment's
+     * offset in the ciphertext, i.e. {@code firstSegment * (segmentSize + 16)}.
+     */
+    public SegmentDecryptingInputStream(InputStream source, SecretKey key, byte[] baseIv, int segmentSize,
+            int firstSegment) throws GeneralSecurityException {
+        this(source, key, baseIv, segmentSize, firstSegment, null);
+    }
+
+    public SegmentDecryptingInputStream(InputStream source, SecretKey key, byte[] baseIv, int segmentSize,
+            int firstSegment, SegmentHashTree hashTree) throws GeneralSecurityException {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive");
+        }
+        this.source = source;
+        this.key = key;
+        this.baseIv = baseIv.clone();
+        this.segmentIv = new byte[baseIv.length];
+        this.segmentSize = segmentSize;
+        this.cipher = Cipher.getInstance(CryptoUtilsConstants.AES_GCM_TRANSFORM);
+        this.cipherBuffer = new byte[segmentSize + TAG_BYTES + 1];
+        this.plainBuffer = new byte[segmentSize];
+        this.segmentIndex = firstSegment;
+        this.hashTree = hashTree;
+        this.segmentDigest = hashTree != null ? MessageDigest.getInstance("SHA-256") : null;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return plainBuffer[plainPos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, plainLimit - plainPos);
+        System.arraycopy(plainBuffer, plainPos, b, off, n);
+        plainPos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0 || !fill()) {
+            return 0;
+        }
+        int skipped = (int) Math.min(n, plainLimit - plainPos);
+        plainPos += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return plainLimit - plainPos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Arrays.fill(plainBuffer, (byte) 0);
+        source.close();
+    }
+
+    private boolean fill() throws IOException {
+        if (plainPos < plainLimit) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+
+        int segmentCipherSize = segmentSize + TAG_BYTES;
+        int n = carried;
+        n += source.readNBytes(cipherBuffer, n, segmentCipherSize + 1 - n);
+        if (n < TAG_BYTES) {
+            throw new IOException("Ciphertext is truncated at segment " + segmentIndex);
+        }
+        boolean last = n <= segmentCipherSize;
+        int length = last ? n : segmentCipherSize;
+
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key,
+                    new GCMParameterSpec(CryptoUtilsConstants.GCM_TAG_LENGTH,
+                            SegmentEncryptingInputStream.segmentIv(baseIv, segmentIndex, last, segmentIv)));
+            plainLimit = cipher.doFinal(cipherBuffer, 0, length, plainBuffer, 0);
+        } catch (AEADBadTagException e) {
+            throw new IOException("Segment " + segmentIndex + " failed authentication", e);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Failed to decrypt segment " + segmentIndex, e);
+        }
+        plainPos = 0;
+
+        if (hashTree != null) {
+            boolean expectedLast = segmentIndex == hashTree.getSegmentCount() - 1;
+            if (last != expectedLast || !hashTree.verifySegment(segmentIndex, plainBuffer, 0, plainLimit, segmentDigest)) {
+                plainLimit = 0;
+                throw new IOException("Segment " + segmentIndex + " does not match its hash");
+            }
+        }
+
+        if (last) {
+            finished = true;
+            carried = 0;
+        } else {
+            cipherBuffer[0] = cipherBuffer[segmentCipherSize];
+            carried = 1;
+            segmentIndex++;
+        }
+        // only the final segment of an empty plaintext decrypts to nothing
+        return plainLimit > 0;
+    }
+}
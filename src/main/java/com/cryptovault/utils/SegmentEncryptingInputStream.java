@@ -0,0 +1,178 @@
+package com.cryptovault.utils;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Reads plaintext from a source stream and produces the segmented AES-GCM ciphertext.
+ * Every segment of {@code segmentSize} plaintext bytes is sealed on its own as
+ * {@code ciphertext || tag}, so only one segment is held in memory at a time.
+ * The IV of a segment is derived from the base IV, the segment index and a final-segment flag,
+ * which makes reordering and truncation of segments detectable on decryption.
+ * Optionally the plaintext of every segment is also hashed into a {@link SegmentHashTree}.
+ */
+public class SegmentEncryptingInputStream extends InputStream {
+
+    private final InputStream source;
+    private final SecretKey key;
+    private final byte[] baseIv;
+    private final byte[] segmentIv;
+    private final int segmentSize;
+    private final Cipher cipher;
+    private final MessageDigest segmentDigest;
+    private final ByteArrayOutputStream segmentHashes;
+
+    // one extra byte of lookahead tells whether the current segment is the final one
+    private final byte[] plainBuffer;
+    private final byte[] cipherBuffer;
+    private int carried;
+
+    private int cipherPos;
+    private int cipherLimit;
+    private int segmentIndex;
+    private long plaintextLength;
+    private boolean finished;
+    private byte[] finalTag;
+
+    public SegmentEncryptingInputStream(InputStream source, SecretKey key, byte[] baseIv, int segmentSize)
+            throws GeneralSecurityException {
+        this(source, key, baseIv, segmentSize, false);
+    }
+
+    public SegmentEncryptingInputStream(InputStream source, SecretKey key, byte[] baseIv, int segmentSize,
+            boolean hashSegments) throws GeneralSecurityException {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive");
+        }
+        this.source = source;
+        this.key = key;
+        this.baseIv = baseIv.clone();
+        this.segmentIv = new byte[baseIv.length];
+        this.segmentSize = segmentSize;
+        this.cipher = Cipher.getInstance(CryptoUtilsConstants.AES_GCM_TRANSFORM);
+        this.plainBuffer = new byte[segmentSize + 1];
+        this.cipherBuffer = new byte[segmentSize + CryptoUtilsConstants.GCM_TAG_LENGTH / 8];
+        this.segmentDigest = hashSegments ? MessageDigest.getInstance("SHA-256") : null;
+        this.segmentHashes = hashSegments ? new ByteArrayOutputStream() : null;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return cipherBuffer[cipherPos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, cipherLimit - cipherPos);
+        System.arraycopy(cipherBuffer, cipherPos, b, off, n);
+        cipherPos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return cipherLimit - cipherPos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Arrays.fill(plainBuffer, (byte) 0);
+        source.close();
+    }
+
+    /**
+     * Number of plaintext bytes consumed so far; the full length once the stream is exhausted.
+     */
+    public long getPlaintextLength() {
+        return plaintextLength;
+    }
+
+    /**
+     * GCM tag of the final segment, available once the stream is exhausted.
+     */
+    public byte[] getFinalTag() {
+        return finalTag != null ? finalTag.clone() : null;
+    }
+
+    /**
+     * Hash tree over the plaintext segments, available once the stream is exhausted
+     * if segment hashing was requested.
+     */
+    public SegmentHashTree getSegmentHashTree() {
+        return finished && segmentHashes != null ? new SegmentHashTree(segmentHashes.toByteArray()) : null;
+    }
+
+    private boolean fill() throws IOException {
+        if (cipherPos < cipherLimit) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+
+        int n = carried;
+        n += source.readNBytes(plainBuffer, n, segmentSize + 1 - n);
+        boolean last = n <= segmentSize;
+        int length = last ? n : segmentSize;
+
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, key,
+                    new GCMParameterSpec(CryptoUtilsConstants.GCM_TAG_LENGTH,
+                            segmentIv(baseIv, segmentIndex, last, segmentIv)));
+            cipherLimit = cipher.doFinal(plainBuffer, 0, length, cipherBuffer, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Failed to encrypt segment " + segmentIndex, e);
+        }
+        cipherPos = 0;
+        plaintextLength += length;
+        if (segmentDigest != null) {
+            segmentHashes.writeBytes(SegmentHashTree.leafHash(segmentDigest, plainBuffer, 0, length));
+        }
+
+        if (last) {
+            finished = true;
+            int tagLength = CryptoUtilsConstants.GCM_TAG_LENGTH / 8;
+            finalTag = Arrays.copyOfRange(cipherBuffer, cipherLimit - tagLength, cipherLimit);
+            carried = 0;
+        } else {
+            plainBuffer[0] = plainBuffer[segmentSize];
+            carried = 1;
+            if (++segmentIndex == 0) {
+                throw new IOException("Too many segments");
+            }
+        }
+        return true;
+    }
+
+    /**
+     * IV of a single segment: the base IV with the big-endian segment index folded into bytes 7..10
+     * and the final-segment flag folded into byte 11. Written into {@code target}, which is returned.
+     */
+    static byte[] segmentIv(byte[] baseIv, int segmentIndex, boolean last, byte[] target) {
+        System.arraycopy(baseIv, 0, target, 0, baseIv.length);
+        target[7] ^= (byte) (segmentIndex >>> 24);
+        target[8] ^= (byte) (segmentIndex >>> 16);
+        target[9] ^= (byte) (segmentIndex >>> 8);
+        target[10] ^= (byte) segmentIndex;
+        if (last) {
+            target[11] ^= 1;
+        }
+        return target;
+    }
+}
@@ -0,0 +1,99 @@
+package com.cryptovault.utils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Merkle tree over the SHA-256 hashes of fixed-size plaintext segments.
+ * Leaves are {@code SHA-256(0x00 || segment)} and inner nodes {@code SHA-256(0x01 || left || right)};
+ * an unpaired node is carried up to the next level unchanged. The distinct prefixes keep a leaf
+ * from being passed off as an inner node.
+ * <p>
+ * Only the leaf hashes are stored; the root is recomputed from them and compared with the
+ * root recorded for the document, after which every segment can be checked on its own.
+ */
+public final class SegmentHashTree {
+
+    public static final int HASH_BYTES = 32;
+
+    private static final byte LEAF_PREFIX = 0x00;
+    private static final byte NODE_PREFIX = 0x01;
+
+    private final byte[] leaves;
+
+    public SegmentHashTree(byte[] leaves) {
+        if (leaves.length == 0 || leaves.length % HASH_BYTES != 0) {
+            throw new IllegalArgumentException("Leaf hashes must be a non-empty multiple of " + HASH_BYTES + " bytes");
+        }
+        this.leaves = leaves.clone();
+    }
+
+    public static SegmentHashTree fromBase64(String encodedLeaves) {
+        return new SegmentHashTree(Base64.getDecoder().decode(encodedLeaves));
+    }
+
+    public String toBase64() {
+        return Base64.getEncoder().encodeToString(leaves);
+    }
+
+    public int getSegmentCount() {
+        return leaves.length / HASH_BYTES;
+    }
+
+    public byte[] root() {
+        MessageDigest digest = sha256();
+        int count = getSegmentCount();
+        byte[][] level = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            level[i] = Arrays.copyOfRange(leaves, i * HASH_BYTES, (i + 1) * HASH_BYTES);
+        }
+        while (count > 1) {
+            int next = 0;
+            for (int i = 0; i < count; i += 2) {
+                if (i + 1 == count) {
+                    level[next++] = level[i];
+                } else {
+                    digest.update(NODE_PREFIX);
+                    digest.update(level[i]);
+                    digest.update(level[i + 1]);
+                    level[next++] = digest.digest();
+                }
+            }
+            count = next;
+        }
+        return level[0];
+    }
+
+    public String rootHex() {
+        return HexFormat.of().formatHex(root());
+    }
+
+    /**
+     * Whether {@code segment[off, off + len)} is the plaintext of segment {@code index}.
+     */
+    public boolean verifySegment(int index, byte[] segment, int off, int len, MessageDigest digest) {
+        if (index < 0 || index >= getSegmentCount()) {
+            return false;
+        }
+        byte[] actual = leafHash(digest, segment, off, len);
+        byte[] expected = Arrays.copyOfRange(leaves, index * HASH_BYTES, (index + 1) * HASH_BYTES);
+        return MessageDigest.isEqual(actual, expected);
+    }
+
+    public static byte[] leafHash(MessageDigest digest, byte[] segment, int off, int len) {
+        digest.update(LEAF_PREFIX);
+        digest.update(segment, off, len);
+        return digest.digest();
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.cryptovault.utils;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a single-sheet XLSX workbook straight to an output stream. Rows are serialized as they
+ * are added, so memory use does not depend on the number of rows and nothing touches the disk.
+ * <p>
+ * Strings are written inline rather than through a shared strings table, and the styles are a
+ * fixed set covering what the reports need. Rows must be added in ascending order.
+ */
+public class XlsxStreamWriter implements Closeable {
+
+    public enum Style {
+        DEFAULT, TITLE, BOLD, SECTION, HEADER, CELL, CELL_CENTERED, RIGHT
+    }
+
+    public static final class Cell {
+        private final Object value;
+        private final Style style;
+
+        private Cell(Object value, Style style) {
+            this.value = value;
+            this.style = style;
+        }
+    }
+
+    private static final String STYLES = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <styleSheet xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main">
+            <fonts count="5">
+            <font><sz val="11"/><name val="Calibri"/></font>
+            <font><b/><sz val="16"/><color rgb="FF4472C4"/><name val="Calibri"/></font>
+            <font><b/><sz val="11"/><name val="Calibri"/></font>
+            <font><b/><sz val="14"/><color rgb="FF4472C4"/><name val="Calibri"/></font>
+            <font><b/><sz val="12"/><color rgb="FFFFFFFF"/><name val="Calibri"/></font>
+            </fonts>
+            <fills count="3">
+            <fill><patternFill patternType="none"/></fill>
+            <fill><patternFill patternType="gray125"/></fill>
+            <fill><patternFill patternType="solid"><fgColor rgb="FF4472C4"/><bgColor rgb="FF4472C4"/></patternFill></fill>
+            </fills>
+            <borders count="2">
+            <border><left/><right/><top/><bottom/><diagonal/></border>
+            <border><left style="thin"/><right style="thin"/><top style="thin"/><bottom style="thin"/><diagonal/></border>
+            </borders>
+            <cellStyleXfs count="1"><xf numFmtId="0" fontId="0" fillId="0" borderId="0"/></cellStyleXfs>
+            <cellXfs count="8">
+            <xf numFmtId="0" fontId="0" fillId="0" borderId="0" xfId="0"/>
+            <xf numFmtId="0" fontId="1" fillId="0" borderId="0" xfId="0" applyFont="1"/>
+            <xf numFmtId="0" fontId="2" fillId="0" borderId="0" xfId="0" applyFont="1"/>
+            <xf numFmtId="0" fontId="3" fillId="0" borderId="0" xfId="0" applyFont="1"/>
+            <xf numFmtId="0" fontId="4" fillId="2" borderId="1" xfId="0" applyFont="1" applyFill="1" applyBorder="1" applyAlignment="1"><alignment horizontal="center"/></xf>
+            <xf numFmtId="0" fontId="0" fillId="0" borderId="1" xfId="0" applyBorder="1"/>
+            <xf numFmtId="0" fontId="0" fillId="0" borderId="1" xfId="0" applyBorder="1" applyAlignment="1"><alignment horizontal="center"/></xf>
+            <xf numFmtId="0" fontId="0" fillId="0" borderId="0" xfId="0" applyAlignment="1"><alignment horizontal="right"/></xf>
+            </cellXfs>
+            </styleSheet>
+            """;
+
+    private final ZipOutputStream zip;
+    private final Writer writer;
+    private final List<String> mergedRanges = new ArrayList<>();
+    private int lastRow;
+    private boolean closed;
+
+    public XlsxStreamWriter(OutputStream out, String sheetName, double... columnWidths) throws IOException {
+        zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+
+        part("[Content_Types].xml", """
+                <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                <Types xmlns="http://schemas.openxmlformats.org/package/2006/content-types">
+                <Default Extension="rels" ContentType="application/vnd.openxmlformats-package.relationships+xml"/>
+                <Default Extension="xml" ContentType="application/xml"/>
+                <Override PartName="/xl/workbook.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml"/>
+                <Override PartName="/xl/worksheets/sheet1.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml"/>
+                <Override PartName="/xl/styles.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml"/>
+                </Types>
+                """);
+        part("_rels/.rels", """
+                <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                <Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">
+                <Relationship Id="rId1" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument" Target="xl/workbook.xml"/>
+                </Relationships>
+                """);
+        part("xl/workbook.xml", """
+                <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                <workbook xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main" xmlns:r="http://schemas.openxmlformats.org/officeDocument/2006/relationships">
+                <sheets><sheet name="%s" sheetId="1" r:id="rId1"/></sheets>
+                </workbook>
+                """.formatted(escape(sheetName)));
+        part("xl/_rels/workbook.xml.rels", """
+                <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                <Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">
+                <Relationship Id="rId1" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet" Target="worksheets/sheet1.xml"/>
+                <Relationship Id="rId2" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles" Target="styles.xml"/>
+                </Relationships>
+                """);
+        part("xl/styles.xml", STYLES);
+
+        // the worksheet entry stays open until close(); rows go straight into it
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">");
+        if (columnWidths.length > 0) {
+            writer.write("<cols>");
+            for (int i = 0; i < columnWidths.length; i++) {
+                writer.write("<col min=\"" + (i + 1) + "\" max=\"" + (i + 1) + "\" width=\"" + columnWidths[i]
+                        + "\" customWidth=\"1\"/>");
+            }
+            writer.write("</cols>");
+        }
+        writer.write("<sheetData>");
+    }
+
+    public static Cell text(String value, Style style) {
+        return new Cell(value, style);
+    }
+
+    public static Cell text(String value) {
+        return new Cell(value, Style.DEFAULT);
+    }
+
+    public static Cell number(Number value, Style style) {
+        return new Cell(value, style);
+    }
+
+    /**
+     * Writes row {@code rowNumber} (1-based) with cells from column A onwards; a null cell leaves its column empty.
+     */
+    public void row(int rowNumber, Cell... cells) throws IOException {
+        if (rowNumber <= lastRow) {
+            throw new IllegalArgumentException("Rows must be written in ascending order, got " + rowNumber
+                    + " after " + lastRow);
+        }
+        lastRow = rowNumber;
+        writer.write("<row r=\"" + rowNumber + "\">");
+        for (int i = 0; i < cells.length; i++) {
+            Cell cell = cells[i];
+            if (cell == null) {
+                continue;
+            }
+            String ref = columnName(i) + rowNumber;
+            String style = cell.style.ordinal() == 0 ? "" : " s=\"" + cell.style.ordinal() + "\"";
+            if (cell.value == null) {
+                writer.write("<c r=\"" + ref + "\"" + style + "/>");
+            } else if (cell.value instanceof Number) {
+                writer.write("<c r=\"" + ref + "\"" + style + "><v>" + cell.value + "</v></c>");
+            } else {
+                writer.write("<c r=\"" + ref + "\"" + style + " t=\"inlineStr\"><is><t>"
+                        + escape(cell.value.toString()) + "</t></is></c>");
+            }
+        }
+        writer.write("</row>");
+    }
+
+    /**
+     * Merges a range such as {@code A1:E1}; merges are written after the sheet data on close.
+     */
+    public void merge(String range) {
+        mergedRanges.add(range);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        writer.write("</sheetData>");
+        if (!mergedRanges.isEmpty()) {
+            writer.write("<mergeCells count=\"" + mergedRanges.size() + "\">");
+            for (String range : mergedRanges) {
+                writer.write("<mergeCell ref=\"" + range + "\"/>");
+            }
+            writer.write("</mergeCells>");
+        }
+        writer.write("</worksheet>");
+        writer.flush();
+        zip.closeEntry();
+        zip.finish();
+        zip.flush();
+    }
+
+    private void part(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        writer.write(content);
+        writer.flush();
+        zip.closeEntry();
+    }
+
+    static String columnName(int index) {
+        StringBuilder name = new StringBuilder();
+        for (int n = index + 1; n > 0; n = (n - 1) / 26) {
+            name.insert(0, (char) ('A' + (n - 1) % 26));
+        }
+        return name.toString();
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&' -> escaped.append("&amp;");
+                case '<' -> escaped.append("&lt;");
+                case '>' -> escaped.append("&gt;");
+                case '"' -> escaped.append("&quot;");
+                // a literal CR would be read back as LF
+                case '\r' -> escaped.append("&#13;");
+                default -> {
+                    if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                            && Character.isLowSurrogate(value.charAt(i + 1))) {
+                        escaped.append(c).append(value.charAt(++i));
+                    } else if (isXmlChar(c)) {
+                        escaped.append(c);
+                    }
+                    // anything else cannot appear in XML 1.0 at all and is dropped
+                }
+            }
+        }
+        return escaped.toString();
+    }
+
+    // a single UTF-16 unit that is a legal XML 1.0 character on its own, i.e. not part of a surrogate pair
+    private static boolean isXmlChar(char c) {
+        return c == '\t' || c == '\n' || (c >= 0x20 && c < 0xD800) || (c > 0xDFFF && c < 0xFFFE);
+    }
+}
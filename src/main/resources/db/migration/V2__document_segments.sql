@@ -0,0 +1 @@
+ALTER TABLE documents ADD COLUMN segment_size INTEGER;
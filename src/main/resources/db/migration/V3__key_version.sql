@@ -0,0 +1 @@
+ALTER TABLE keys ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,8 @@
+ALTER TABLE documents ADD COLUMN merkle_root VARCHAR(64);
+
+CREATE TABLE IF NOT EXISTS document_hash_trees (
+    document_id BIGINT PRIMARY KEY,
+    segment_count INTEGER NOT NULL,
+    leaf_hashes TEXT NOT NULL,
+    CONSTRAINT fk_hash_tree_document FOREIGN KEY (document_id) REFERENCES documents(id) ON DELETE CASCADE
+);
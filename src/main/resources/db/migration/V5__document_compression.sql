@@ -0,0 +1 @@
+ALTER TABLE documents ADD COLUMN compression VARCHAR(16);
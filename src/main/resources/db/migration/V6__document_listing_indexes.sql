@@ -0,0 +1,4 @@
+-- Keyset listing orders by (created_at, id): per-key listings seek within a key's range,
+-- per-user listings walk the time-ordered index and join to keys for the owner.
+CREATE INDEX IF NOT EXISTS idx_doc_key_created ON documents(key_id, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_doc_created ON documents(created_at, id);
@@ -0,0 +1,13 @@
+-- Raw bytes instead of Base64 text for key material, IVs, tags and wrapped session keys.
+-- Existing rows are converted in the background by KeyMaterialBackfill, which clears the
+-- Base64 columns as it goes; they are dropped once every deployment has finished the backfill.
+ALTER TABLE keys ADD COLUMN key_bytes BYTEA;
+ALTER TABLE keys ADD COLUMN public_key_bytes BYTEA;
+ALTER TABLE keys ALTER COLUMN key_data DROP NOT NULL;
+
+ALTER TABLE documents ADD COLUMN iv_bytes BYTEA;
+ALTER TABLE documents ADD COLUMN tag_bytes BYTEA;
+ALTER TABLE documents ADD COLUMN wrapped_key_bytes BYTEA;
+ALTER TABLE documents ALTER COLUMN iv DROP NOT NULL;
+ALTER TABLE documents ALTER COLUMN tag DROP NOT NULL;
+ALTER TABLE documents ALTER COLUMN wrapped_key DROP NOT NULL;
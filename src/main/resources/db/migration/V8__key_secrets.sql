@@ -0,0 +1,13 @@
+-- Private and secret key material moves to its own table, so that routine loads of keys
+-- (listings, statistics, the lazy Document.key association) no longer read it.
+CREATE TABLE IF NOT EXISTS key_secrets (
+    key_id BIGINT PRIMARY KEY,
+    key_bytes BYTEA NOT NULL,
+    CONSTRAINT fk_key_secret_key FOREIGN KEY (key_id) REFERENCES keys(id) ON DELETE CASCADE
+);
+
+INSERT INTO key_secrets (key_id, key_bytes)
+SELECT id, key_bytes FROM keys WHERE key_bytes IS NOT NULL;
+
+-- keys still holding Base64 key_data are moved over by KeyMaterialBackfill
+ALTER TABLE keys DROP COLUMN key_bytes;
@@ -0,0 +1,92 @@
+package com.cryptovault.controllers;
+
+import com.cryptovault.abstractions.IDocumentService;
+import com.cryptovault.models.Document;
+import com.cryptovault.models.Key;
+import com.cryptovault.services.KeyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "cryptovault.storage.path=target/test-storage/encrypted")
+@AutoConfigureMockMvc
+@ActiveProfiles("dev")
+class DocumentCiphertextExportTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IDocumentService documentService;
+
+    @Autowired
+    private KeyService keyService;
+
+    @Value("${cryptovault.storage.path}")
+    private String storagePath;
+
+    private Document document;
+    private byte[] ciphertext;
+
+    @BeforeEach
+    void encryptDocument() throws Exception {
+        Key key = keyService.generateAndSaveRsaKey(1L, Key.Algorithm.RSA_2048_OAEP);
+        byte[] plaintext = new byte[100_000];
+        new Random(7).nextBytes(plaintext);
+        document = documentService.EncryptFile(plaintext, key.getId(), "report.bin", "application/octet-stream");
+        ciphertext = Files.readAllBytes(Paths.get(storagePath, document.getPathEnc()));
+    }
+
+    @Test
+    void copiesTheCiphertextWithoutSendfile() throws Exception {
+        mockMvc.perform(get("/documents/{id}/ciphertext", document.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, ciphertext.length))
+                .andExpect(content().bytes(ciphertext));
+    }
+
+    @Test
+    void handsTheFileToTheConnectorWhenSendfileIsSupported() throws Exception {
+        MvcResult result = mockMvc.perform(get("/documents/{id}/ciphertext", document.getId())
+                        .requestAttr("org.apache.tomcat.sendfile.support", Boolean.TRUE))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, ciphertext.length))
+                .andReturn();
+
+        // nothing is written by the application; the connector sends the region itself
+        assertEquals(0, result.getResponse().getContentAsByteArray().length);
+        MockHttpServletRequest request = result.getRequest();
+        Path file = Path.of((String) request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(Paths.get(storagePath, document.getPathEnc()).toRealPath(), file);
+        assertEquals(0L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals((long) ciphertext.length, request.getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+
+    @Test
+    void reportsAMissingFileBeforeSendingHeaders() throws Exception {
+        Files.delete(Paths.get(storagePath, document.getPathEnc()));
+
+        mockMvc.perform(get("/documents/{id}/ciphertext", document.getId())
+                        .requestAttr("org.apache.tomcat.sendfile.support", Boolean.TRUE))
+                .andExpect(status().isInternalServerError());
+    }
+}
@@ -0,0 +1,134 @@
+package com.cryptovault.controllers;
+
+import com.cryptovault.abstractions.IDocumentService;
+import com.cryptovault.models.Document;
+import com.cryptovault.models.Key;
+import com.cryptovault.models.User;
+import com.cryptovault.repositories.UserRepository;
+import com.cryptovault.services.KeyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "cryptovault.storage.path=target/test-storage/encrypted")
+@AutoConfigureMockMvc
+@ActiveProfiles("dev")
+class DocumentDecryptStreamingTests {
+
+    private static final int TAG_BYTES = 16;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IDocumentService documentService;
+
+    @Autowired
+    private KeyService keyService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${cryptovault.storage.path}")
+    private String storagePath;
+
+    @Value("${cryptovault.crypto.segment-size}")
+    private int segmentSize;
+
+    private byte[] plaintext;
+    private Document document;
+
+    @BeforeEach
+    void encryptDocument() throws Exception {
+        User user = new User();
+        String name = "decrypt-" + UUID.randomUUID();
+        user.setUsername(name);
+        user.setEmail(name + "@cryptovault.test");
+        user.setPasswordHash("password123");
+        Long userId = userRepository.save(user).getId();
+        Key key = keyService.generateAndSaveRsaKey(userId, Key.Algorithm.RSA_2048_OAEP);
+
+        // random bytes do not compress, so ciphertext segments line up with plaintext segments
+        plaintext = new byte[4 * segmentSize + 100];
+        new Random(42).nextBytes(plaintext);
+        // EncryptFile wipes the array it is given
+        document = documentService.EncryptFile(plaintext.clone(), key.getId(), "report.bin", "application/octet-stream");
+    }
+
+    @Test
+    void streamsAnIntactDocument() throws Exception {
+        mockMvc.perform(get("/documents/decrypt/{id}", document.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", MediaType.APPLICATION_OCTET_STREAM_VALUE))
+                .andExpect(content().bytes(plaintext));
+    }
+
+    @Test
+    void reportsAFirstSegmentFailureBeforeSendingHeaders() throws Exception {
+        corruptSegment(0);
+
+        // headers set before the controller ran, such as CORS, must survive the error
+        mockMvc.perform(get("/documents/decrypt/{id}", document.getId()).header(HttpHeaders.ORIGIN, "http://localhost:3000"))
+                .andExpect(status().isInternalServerError())
+                .andExpect(header().string(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "http://localhost:3000"))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.error").value(startsWith("Security error")));
+    }
+
+    @Test
+    void streamsARangeAcrossSegments() throws Exception {
+        int start = segmentSize - 10;
+        int end = 2 * segmentSize + 9;
+        mockMvc.perform(get("/documents/decrypt/{id}", document.getId())
+                        .header(HttpHeaders.RANGE, "bytes=" + start + "-" + end))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + plaintext.length))
+                .andExpect(content().bytes(Arrays.copyOfRange(plaintext, start, end + 1)));
+    }
+
+    @Test
+    void abortsTheResponseWhenALaterSegmentFails() throws Exception {
+        corruptSegment(3);
+
+        // three segments are already written and the response is committed: the failure has to reach
+        // the container, which drops the connection, instead of being rendered as a JSON error
+        IOException e = assertThrows(IOException.class,
+                () -> mockMvc.perform(get("/documents/decrypt/{id}", document.getId())));
+        assertTrue(e.getMessage().contains("Segment 3"), e.getMessage());
+    }
+
+    private void corruptSegment(int segment) throws IOException {
+        long offset = (long) segment * (segmentSize + TAG_BYTES) + 10;
+        try (FileChannel file = FileChannel.open(Paths.get(storagePath, document.getPathEnc()),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            file.read(b, offset);
+            b.put(0, (byte) (b.get(0) ^ 1)).rewind();
+            file.write(b, offset);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.cryptovault.repositories;
+
+import com.cryptovault.abstractions.IDocumentRepository;
+import com.cryptovault.abstractions.IKeyRepository;
+import com.cryptovault.dtos.DocumentListFilter;
+import com.cryptovault.dtos.DocumentPage;
+import com.cryptovault.dtos.DocumentSummary;
+import com.cryptovault.models.Document;
+import com.cryptovault.models.Key;
+import com.cryptovault.models.User;
+import com.cryptovault.services.DocumentService;
+import com.cryptovault.services.KeyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("dev")
+class DocumentListingRepositoryTests {
+
+    // three distinct timestamps, so most pages start and end inside a run of equal created_at values
+    private static final LocalDateTime[] TIMESTAMPS = {
+            LocalDateTime.of(2024, 3, 1, 12, 0),
+            LocalDateTime.of(2024, 3, 1, 12, 0, 0, 500_000),
+            LocalDateTime.of(2024, 2, 29, 8, 30),
+    };
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private KeyService keyService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private IKeyRepository keyRepository;
+
+    @Autowired
+    private IDocumentRepository documentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private Long userId;
+    private Long firstKeyId;
+    private Long secondKeyId;
+
+    @BeforeEach
+    void createDocuments() throws Exception {
+        userId = createUser();
+        firstKeyId = keyService.generateAndSaveAesKey(userId).getId();
+        secondKeyId = keyService.generateAndSaveAesKey(userId).getId();
+        for (int i = 0; i < 25; i++) {
+            createDocument(i % 5 == 0 ? secondKeyId : firstKeyId, i % 2 == 0 ? "text/plain" : "application/pdf",
+                    100L * i, TIMESTAMPS[i % TIMESTAMPS.length]);
+        }
+
+        // another user's documents at the same instants must never show up
+        Long otherUserId = createUser();
+        Long otherKeyId = keyService.generateAndSaveAesKey(otherUserId).getId();
+        for (LocalDateTime timestamp : TIMESTAMPS) {
+            createDocument(otherKeyId, "text/plain", 1L, timestamp);
+        }
+    }
+
+    @Test
+    void pagesThroughTiesWithoutGapsOrDuplicates() {
+        DocumentListFilter filter = new DocumentListFilter(userId, null, null, null, null);
+        List<DocumentSummary> all = documentService.ListDocuments(filter, null, 500).getDocuments();
+        assertEquals(25, all.size());
+        assertOrdered(all);
+
+        for (int pageSize : new int[]{1, 2, 4, 7, 25}) {
+            assertEquals(ids(all), ids(pageThrough(filter, pageSize)), "page size " + pageSize);
+        }
+    }
+
+    @Test
+    void pagesThroughFilteredListings() {
+        DocumentListFilter byKey = new DocumentListFilter(userId, secondKeyId, null, null, null);
+        List<DocumentSummary> secondKey = pageThrough(byKey, 2);
+        assertEquals(5, secondKey.size());
+        assertTrue(secondKey.stream().allMatch(document -> document.getKeyId().equals(secondKeyId)));
+
+        DocumentListFilter pdfs = new DocumentListFilter(userId, firstKeyId, "application/pdf", 300L, 1900L);
+        List<DocumentSummary> filtered = pageThrough(pdfs, 3);
+        assertOrdered(filtered);
+        assertEquals(List.of(300L, 700L, 900L, 1100L, 1300L, 1700L, 1900L),
+                filtered.stream().map(DocumentSummary::getOriginalSize).sorted().toList());
+        assertEquals(filtered.size(), new HashSet<>(ids(filtered)).size());
+    }
+
+    @Test
+    void listsNothingForAnotherUsersKey() {
+        DocumentListFilter filter = new DocumentListFilter(userId + 1_000_000, firstKeyId, null, null, null);
+        assertTrue(documentService.ListDocuments(filter, null, 10).getDocuments().isEmpty());
+    }
+
+    @Test
+    void rejectsMalformedAndTamperedCursors() throws Exception {
+        List<String> cursors = List.of(
+                "%%%not-base64%%%",
+                encode("garbage"),
+                encode("2024-03-01T12:00"),
+                encode("2024-03-01T12:00|"),
+                encode("2024-03-01T12:00|abc"),
+                encode("2024-03-01T12:00|99999999999999999999"),
+                encode("2024-13-45T99:00|5"),
+                encode("|5"),
+                encode("+999999999-12-31T23:59:59.999999999|1"),
+                encode("-999999999-01-01T00:00|1"));
+        for (String cursor : cursors) {
+            mockMvc.perform(get("/documents").param("userId", userId.toString()).param("cursor", cursor))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").exists());
+        }
+
+        mockMvc.perform(get("/documents").param("userId", userId.toString()).param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/documents").param("userId", userId.toString()).param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(3))
+                .andExpect(jsonPath("$.next_cursor").isString());
+    }
+
+    private List<DocumentSummary> pageThrough(DocumentListFilter filter, int pageSize) {
+        List<DocumentSummary> documents = new ArrayList<>();
+        String cursor = null;
+        do {
+            DocumentPage page = documentService.ListDocuments(filter, cursor, pageSize);
+            assertTrue(page.getDocuments().size() <= pageSize);
+            documents.addAll(page.getDocuments());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return documents;
+    }
+
+    private static void assertOrdered(List<DocumentSummary> documents) {
+        Comparator<DocumentSummary> newestFirst = Comparator.comparing(DocumentSummary::getCreatedAt)
+                .thenComparing(DocumentSummary::getId).reversed();
+        assertEquals(documents.stream().sorted(newestFirst).toList(), documents);
+    }
+
+    private static List<Long> ids(List<DocumentSummary> documents) {
+        return documents.stream().map(DocumentSummary::getId).toList();
+    }
+
+    private static String encode(String cursor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Long createUser() {
+        User user = new User();
+        String name = "listing-" + UUID.randomUUID();
+        user.setUsername(name);
+        user.setEmail(name + "@cryptovault.test");
+        user.setPasswordHash("password123");
+        return userRepository.save(user).getId();
+    }
+
+    private void createDocument(Long keyId, String contentType, Long size, LocalDateTime createdAt) {
+        Key key = keyRepository.getReferenceById(keyId);
+        Document document = new Document();
+        document.setFilename("doc-" + size + ".bin");
+        document.setPathEnc("test/" + UUID.randomUUID() + ".enc");
+        document.setIv(new byte[12]);
+        document.setTag(new byte[16]);
+        document.setWrappedKey(new byte[32]);
+        document.setKey(key);
+        document.setOriginalSize(size);
+        document.setContentType(contentType);
+        Long id = documentRepository.save(document).getId();
+        // created_at is set on insert and not updatable through the entity
+        jdbcTemplate.update("UPDATE documents SET created_at = ? WHERE id = ?", createdAt, id);
+    }
+}
@@ -0,0 +1,83 @@
+package com.cryptovault.services;
+
+import com.cryptovault.abstractions.IDocumentRepository;
+import com.cryptovault.abstractions.IDocumentService;
+import com.cryptovault.dtos.BatchEncryptionResult;
+import com.cryptovault.dtos.DocumentUpload;
+import com.cryptovault.models.Key;
+import com.cryptovault.repositories.DocumentHashTreeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = "cryptovault.storage.path=target/test-storage/encrypted")
+@ActiveProfiles("dev")
+class DocumentServiceTests {
+
+    @Autowired
+    private IDocumentService documentService;
+
+    @Autowired
+    private KeyService keyService;
+
+    @MockitoSpyBean
+    private IDocumentRepository documentRepository;
+
+    @MockitoSpyBean
+    private DocumentHashTreeRepository hashTreeRepository;
+
+    private Long keyId;
+
+    @BeforeEach
+    void failHashTreeInserts() throws Exception {
+        keyId = keyService.generateAndSaveRsaKey(1L, Key.Algorithm.RSA_2048_OAEP).getId();
+        doThrow(new DataIntegrityViolationException("document_hash_trees insert failed"))
+                .when(hashTreeRepository).saveAll(anyIterable());
+    }
+
+    @Test
+    void uploadLeavesNoDocumentBehindWhenHashTreeInsertFails() {
+        assertThrows(DataIntegrityViolationException.class,
+                () -> documentService.EncryptFile(randomBytes(1000), keyId, "a.bin", "application/octet-stream"));
+        assertEquals(0, documentRepository.countByKeyId(keyId));
+        // rolled back with the tree, not deleted afterwards
+        verify(documentRepository, never()).deleteAll(anyIterable());
+    }
+
+    @Test
+    void batchLeavesNoDocumentsBehindWhenHashTreeInsertFails() throws Exception {
+        List<DocumentUpload> uploads = List.of(upload("a.bin"), upload("b.bin"));
+
+        List<BatchEncryptionResult> results = documentService.EncryptFiles(uploads, keyId);
+
+        assertEquals(2, results.size());
+        assertTrue(results.stream().noneMatch(BatchEncryptionResult::isSuccess));
+        assertEquals(0, documentRepository.countByKeyId(keyId));
+        verify(documentRepository, never()).deleteAll(anyIterable());
+    }
+
+    private static DocumentUpload upload(String filename) {
+        byte[] content = randomBytes(1000);
+        return new DocumentUpload(filename, "application/octet-stream", content.length, new ByteArrayResource(content));
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,86 @@
+package com.cryptovault.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitSyncerTests {
+
+    @TempDir
+    Path directory;
+
+    private GroupCommitSyncer syncer;
+
+    @BeforeEach
+    void startSyncer() {
+        syncer = new GroupCommitSyncer();
+        ReflectionTestUtils.setField(syncer, "enabled", true);
+        ReflectionTestUtils.setField(syncer, "windowMillis", 2L);
+        ReflectionTestUtils.setField(syncer, "maxBatch", 128);
+        ReflectionTestUtils.setField(syncer, "timeoutMillis", 30_000L);
+        syncer.start();
+    }
+
+    @AfterEach
+    void stopSyncer() throws InterruptedException {
+        syncer.stop();
+    }
+
+    @Test
+    void syncsFileAndDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve("data"),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+            syncer.sync(channel, List.of(directory));
+        }
+
+        // forces are counted before the writers are released
+        assertEquals(1L, syncer.getStats().get("file_fsyncs"));
+        assertEquals(1L, syncer.getStats().get("directory_fsyncs"));
+    }
+
+    @Test
+    void publishesStatsAsMeters() throws IOException, InterruptedException {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        syncer.bindTo(registry);
+        try (FileChannel channel = FileChannel.open(directory.resolve("data"),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+            syncer.sync(channel, List.of(directory));
+        }
+
+        assertEquals(1, registry.get("cryptovault.storage.durable.fsyncs").tag("target", "file").functionCounter().count());
+        assertEquals(1, registry.get("cryptovault.storage.durable.fsyncs").tag("target", "directory").functionCounter().count());
+        assertEquals(1, registry.get("cryptovault.storage.durable.running").gauge().value());
+
+        // commits are counted after the writers are released; stop joins the flusher
+        syncer.stop();
+        assertEquals(1, registry.get("cryptovault.storage.durable.commits").functionTimer().count());
+        assertEquals(1, registry.get("cryptovault.storage.durable.writes").functionTimer().count());
+        assertEquals(0, registry.get("cryptovault.storage.durable.running").gauge().value());
+    }
+
+    @Test
+    void syncAfterStopFailsInsteadOfBlocking() throws InterruptedException {
+        syncer.stop();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            IOException e = assertThrows(IOException.class, () -> syncer.sync(null, List.of(directory)));
+            assertEquals("Storage is shutting down", e.getMessage());
+        });
+    }
+}
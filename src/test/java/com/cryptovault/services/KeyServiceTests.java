@@ -0,0 +1,46 @@
+package com.cryptovault.services;
+
+import com.cryptovault.abstractions.IKeyRepository;
+import com.cryptovault.dtos.KeyGenerationRequest;
+import com.cryptovault.repositories.KeySecretRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest
+@ActiveProfiles("dev")
+class KeyServiceTests {
+
+    @Autowired
+    private KeyService keyService;
+
+    @Autowired
+    private IKeyRepository keyRepository;
+
+    @MockitoSpyBean
+    private KeySecretRepository keySecretRepository;
+
+    @Test
+    void batchLeavesNoKeysBehindWhenSecretInsertFails() {
+        long userId = 1L;
+        int keysBefore = keyRepository.findByUserId(userId).size();
+        doThrow(new DataIntegrityViolationException("key_secrets insert failed"))
+                .when(keySecretRepository).saveAll(anyIterable());
+
+        List<KeyGenerationRequest> specs = List.of(
+                new KeyGenerationRequest(userId, "AES", null),
+                new KeyGenerationRequest(userId, "RSA", "RSA_2048_OAEP"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> keyService.generateAndSaveKeys(specs));
+        assertEquals(keysBefore, keyRepository.findByUserId(userId).size());
+    }
+}
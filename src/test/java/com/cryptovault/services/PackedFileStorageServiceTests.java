@@ -0,0 +1,197 @@
+package com.cryptovault.services;
+
+import com.cryptovault.dtos.FileRegion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedFileStorageServiceTests {
+
+    private static final int THRESHOLD = 1024;
+
+    // a new seed per call, so records of the same size still differ
+    private static final AtomicLong seed = new AtomicLong();
+
+    @TempDir
+    Path directory;
+
+    private PackedFileStorageService storage;
+
+    @AfterEach
+    void closeStorage() throws IOException {
+        if (storage != null) {
+            storage.close();
+        }
+    }
+
+    @Test
+    void packsSmallRecordsBackToBack() throws IOException {
+        storage = newStorage(1 << 20);
+        byte[] first = randomBytes(100);
+        byte[] second = randomBytes(THRESHOLD);
+
+        String firstLocator = storage.save(first);
+        String secondLocator = storage.save(second);
+
+        assertEquals("packed/00000001.pack@4+100", firstLocator);
+        assertEquals("packed/00000001.pack@108+" + THRESHOLD, secondLocator);
+        assertEquals(104, PackedFileStorageService.recordBytes(firstLocator));
+        assertArrayEquals(first, storage.load(firstLocator));
+        assertArrayEquals(second, storage.load(secondLocator));
+    }
+
+    @Test
+    void storesLargeRecordsAsBlobs() throws IOException {
+        storage = newStorage(1 << 20);
+        byte[] large = randomBytes(THRESHOLD + 1);
+
+        String locator = storage.save(large);
+        String streamed = storage.save(new ByteArrayInputStream(large));
+
+        assertFalse(PackedFileStorageService.isPacked(locator));
+        assertFalse(PackedFileStorageService.isPacked(streamed));
+        assertArrayEquals(large, storage.load(locator));
+        assertArrayEquals(large, storage.load(streamed));
+        assertTrue(PackedFileStorageService.isPacked(storage.save(new ByteArrayInputStream(randomBytes(10)))));
+    }
+
+    @Test
+    void readsStopAtTheRecordBoundary() throws IOException {
+        storage = newStorage(1 << 20);
+        byte[] first = randomBytes(300);
+        byte[] second = randomBytes(300);
+        String firstLocator = storage.save(first);
+        storage.save(second);
+
+        try (InputStream in = storage.open(firstLocator, 250)) {
+            assertArrayEquals(Arrays.copyOfRange(first, 250, 300), in.readAllBytes());
+        }
+        try (FileChannel channel = storage.openChannel(firstLocator)) {
+            assertEquals(300, channel.size());
+            ByteBuffer buffer = ByteBuffer.allocate(1000);
+            assertEquals(300, channel.read(buffer));
+            assertEquals(-1, channel.read(buffer));
+        }
+        assertEquals(300, storage.map(firstLocator).remaining());
+    }
+
+    @Test
+    void locatesRecordsInsideTheirSegment() throws IOException {
+        storage = newStorage(1 << 20);
+        storage.save(randomBytes(100));
+        byte[] record = randomBytes(300);
+        String locator = storage.save(record);
+        String blob = storage.save(randomBytes(THRESHOLD + 1));
+
+        FileRegion region = storage.locate(locator);
+        assertEquals(directory.resolve("packed/00000001.pack").toRealPath(), region.getFile());
+        assertEquals(108, region.getStart());
+        assertEquals(300, region.getLength());
+        try (FileChannel segment = FileChannel.open(region.getFile(), StandardOpenOption.READ)) {
+            ByteBuffer bytes = ByteBuffer.allocate(300);
+            segment.read(bytes, region.getStart());
+            assertArrayEquals(record, bytes.array());
+        }
+
+        FileRegion blobRegion = storage.locate(blob);
+        assertEquals(0, blobRegion.getStart());
+        assertEquals(THRESHOLD + 1, blobRegion.getLength());
+        assertThrows(IOException.class, () -> storage.locate("packed/00000009.pack@4+10"));
+    }
+
+    @Test
+    void startsANewSegmentWhenTheActiveOneIsFull() throws IOException {
+        storage = newStorage(100);
+        String first = storage.save(randomBytes(40));
+        String second = storage.save(randomBytes(40));
+        String third = storage.save(randomBytes(40));
+
+        assertTrue(first.startsWith("packed/00000001.pack@"));
+        assertTrue(second.startsWith("packed/00000001.pack@"));
+        assertTrue(third.startsWith("packed/00000002.pack@"));
+        assertEquals(List.of("00000001.pack"), storage.sealedSegments());
+        assertEquals(88, storage.segmentBytes("00000001.pack"));
+    }
+
+    @Test
+    void appendsAfterATornRecordLeftByACrash() throws IOException {
+        storage = newStorage(1 << 20);
+        byte[] before = randomBytes(200);
+        String beforeLocator = storage.save(before);
+        storage.close();
+
+        // a crash in the middle of an append: the header promises more bytes than were written
+        try (FileChannel segment = FileChannel.open(directory.resolve("packed/00000001.pack"), StandardOpenOption.WRITE)) {
+            segment.write(ByteBuffer.allocate(4 + 50).putInt(0, 500), 204);
+        }
+
+        storage = newStorage(1 << 20);
+        byte[] after = randomBytes(200);
+        String afterLocator = storage.save(after);
+
+        assertEquals("packed/00000001.pack@262+200", afterLocator);
+        assertArrayEquals(before, storage.load(beforeLocator));
+        assertArrayEquals(after, storage.load(afterLocator));
+    }
+
+    @Test
+    void retiredSegmentsStayReadableUntilPurged() throws IOException {
+        storage = newStorage(100);
+        byte[] data = randomBytes(60);
+        String locator = storage.save(data);
+        storage.save(randomBytes(60));
+
+        storage.retire("00000001.pack");
+        assertArrayEquals(data, storage.load(locator));
+        assertThrows(IllegalStateException.class, () -> storage.retire("00000002.pack"));
+
+        assertEquals(64, storage.purgeRetired());
+        assertThrows(IOException.class, () -> storage.load(locator));
+    }
+
+    @Test
+    void rejectsMalformedLocators() {
+        assertThrows(IllegalArgumentException.class, () -> PackedFileStorageService.recordBytes("packed/00000001.pack"));
+        assertThrows(IllegalArgumentException.class, () -> PackedFileStorageService.recordBytes("ab/cd/file.enc@4+10"));
+        assertThrows(NumberFormatException.class, () -> PackedFileStorageService.recordBytes("packed/00000001.pack@x+10"));
+    }
+
+    private PackedFileStorageService newStorage(long segmentMaxBytes) throws IOException {
+        return newPackedStorage(directory, segmentMaxBytes);
+    }
+
+    static PackedFileStorageService newPackedStorage(Path directory, long segmentMaxBytes) throws IOException {
+        GroupCommitSyncer syncer = new GroupCommitSyncer();
+        FileStorageService blobStorage = new FileStorageService(new FlatStorageLayout(), syncer);
+        ReflectionTestUtils.setField(blobStorage, "storageBasePath", directory.toString());
+        blobStorage.init();
+
+        PackedFileStorageService storage = new PackedFileStorageService(blobStorage, syncer);
+        ReflectionTestUtils.setField(storage, "storageBasePath", directory.toString());
+        ReflectionTestUtils.setField(storage, "thresholdBytes", THRESHOLD);
+        ReflectionTestUtils.setField(storage, "segmentMaxBytes", segmentMaxBytes);
+        storage.init();
+        return storage;
+    }
+
+    static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(seed.incrementAndGet()).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,107 @@
+package com.cryptovault.services;
+
+import com.cryptovault.abstractions.IDocumentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.cryptovault.services.PackedFileStorageServiceTests.newPackedStorage;
+import static com.cryptovault.services.PackedFileStorageServiceTests.randomBytes;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PackedStorageCompactorTests {
+
+    @TempDir
+    Path directory;
+
+    private PackedFileStorageService storage;
+    private IDocumentRepository documentRepository;
+    private PackedStorageCompactor compactor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // four records of 20 bytes (24 with the header) fill a segment
+        storage = newPackedStorage(directory, 100);
+        documentRepository = mock(IDocumentRepository.class);
+        compactor = new PackedStorageCompactor(storage, documentRepository);
+        ReflectionTestUtils.setField(compactor, "minGarbageRatio", 0.5);
+        ReflectionTestUtils.setField(compactor, "minAgeMillis", 0L);
+    }
+
+    @AfterEach
+    void closeStorage() throws IOException {
+        storage.close();
+    }
+
+    @Test
+    void movesLiveRecordsAndRewritesTheirLocators() throws IOException {
+        byte[] live = randomBytes(20);
+        String liveLocator = storage.save(live);
+        byte[] garbage = randomBytes(20);
+        String garbageLocator = storage.save(garbage);
+        storage.save(randomBytes(20));
+        storage.save(randomBytes(20));
+        storage.save(randomBytes(20));
+        assertEquals(List.of("00000001.pack"), storage.sealedSegments());
+
+        when(documentRepository.findPathsStartingWith("packed/00000001.pack@"))
+                .thenReturn(rows(new Object[]{1L, liveLocator}));
+        compactor.compact();
+
+        ArgumentCaptor<String> moved = ArgumentCaptor.forClass(String.class);
+        verify(documentRepository).updatePathEnc(eq(1L), eq(liveLocator), moved.capture());
+        assertTrue(moved.getValue().startsWith("packed/00000002.pack@"));
+        assertArrayEquals(live, storage.load(moved.getValue()));
+        assertTrue(storage.sealedSegments().isEmpty());
+
+        // readers holding the old locator are served from the retired file until the next run purges it
+        assertArrayEquals(garbage, storage.load(garbageLocator));
+        compactor.compact();
+        assertThrows(IOException.class, () -> storage.load(garbageLocator));
+        assertArrayEquals(live, storage.load(moved.getValue()));
+    }
+
+    @Test
+    void keepsSegmentsBelowTheGarbageRatio() throws IOException {
+        List<Object[]> live = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            live.add(new Object[]{(long) i, storage.save(randomBytes(20))});
+        }
+        storage.save(randomBytes(20));
+        // three of four records live: a quarter is garbage
+        when(documentRepository.findPathsStartingWith("packed/00000001.pack@")).thenReturn(live.subList(0, 3));
+
+        compactor.compact();
+
+        verify(documentRepository, never()).updatePathEnc(anyLong(), anyString(), anyString());
+        assertEquals(List.of("00000001.pack"), storage.sealedSegments());
+    }
+
+    @Test
+    void skipsSegmentsYoungerThanTheMinimumAge() throws IOException {
+        ReflectionTestUtils.setField(compactor, "minAgeMillis", 600_000L);
+        storage.save(randomBytes(60));
+        storage.save(randomBytes(60));
+
+        compactor.compact();
+
+        verify(documentRepository, never()).findPathsStartingWith(anyString());
+        assertEquals(List.of("00000001.pack"), storage.sealedSegments());
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+}
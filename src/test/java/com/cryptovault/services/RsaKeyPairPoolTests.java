@@ -0,0 +1,62 @@
+package com.cryptovault.services;
+
+import com.cryptovault.models.Key;
+import com.cryptovault.utils.CryptoUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RsaKeyPairPoolTests {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final RsaKeyPairPool pool = new RsaKeyPairPool(new CryptoUtils());
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        pool.shutdown();
+    }
+
+    @Test
+    void publishesSynchronousFallbacksWhenDisabled() throws Exception {
+        ReflectionTestUtils.setField(pool, "targetSize", 0);
+        pool.init();
+        pool.bindTo(registry);
+
+        assertNotNull(pool.take(Key.Algorithm.RSA_2048_OAEP));
+
+        assertEquals(1, takes("RSA_2048_OAEP", "synchronous"));
+        assertEquals(0, takes("RSA_2048_OAEP", "pool"));
+        assertEquals(0, registry.get("cryptovault.keys.pool.depth").tag("algorithm", "RSA_2048_OAEP").gauge().value());
+    }
+
+    @Test
+    void publishesBackgroundGenerationAndPoolTakes() throws Exception {
+        ReflectionTestUtils.setField(pool, "targetSize", 1);
+        ReflectionTestUtils.setField(pool, "threads", 1);
+        pool.init();
+        pool.bindTo(registry);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (pool.depth(Key.Algorithm.RSA_2048_OAEP) == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, registry.get("cryptovault.keys.pool.depth").tag("algorithm", "RSA_2048_OAEP").gauge().value());
+
+        pool.take(Key.Algorithm.RSA_2048_OAEP);
+
+        assertEquals(1, takes("RSA_2048_OAEP", "pool"));
+        assertTrue(registry.get("cryptovault.keys.pool.generation").tag("algorithm", "RSA_2048_OAEP")
+                .functionTimer().count() >= 1);
+    }
+
+    private double takes(String algorithm, String source) {
+        return registry.get("cryptovault.keys.pool.takes").tags("algorithm", algorithm, "source", source)
+                .functionCounter().count();
+    }
+}
@@ -0,0 +1,43 @@
+package com.cryptovault.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionKeyCacheTests {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final SessionKeyCache cache = new SessionKeyCache();
+
+    @BeforeEach
+    void enableCache() {
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSize", 1);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 300L);
+        cache.bindTo(registry);
+    }
+
+    @Test
+    void publishesHitsMissesEvictionsAndSize() {
+        assertNull(cache.get(1L));
+        cache.put(1L, 10L, new SecretKeySpec(new byte[32], "AES"));
+        assertNotNull(cache.get(1L));
+        assertNotNull(cache.get(1L));
+        cache.put(2L, 10L, new SecretKeySpec(new byte[32], "AES"));
+
+        assertEquals(2, requests("hit"));
+        assertEquals(1, requests("miss"));
+        assertEquals(1, registry.get("cryptovault.session.key.cache.evictions").functionCounter().count());
+        assertEquals(1, registry.get("cryptovault.session.key.cache.size").gauge().value());
+    }
+
+    private double requests(String result) {
+        return registry.get("cryptovault.session.key.cache.requests").tag("result", result).functionCounter().count();
+    }
+}
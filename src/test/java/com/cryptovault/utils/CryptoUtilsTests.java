@@ -0,0 +1,69 @@
+package com.cryptovault.utils;
+
+import com.cryptovault.dtos.EncryptedData;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CryptoUtilsTests {
+
+    private final CryptoUtils cryptoUtils = new CryptoUtils();
+
+    @Test
+    void byteBufferRoundTripInPlace() throws Exception {
+        SecretKey key = cryptoUtils.generateAesKey();
+        byte[] iv = cryptoUtils.generateIv();
+        byte[] plaintext = new byte[10_000];
+        new Random(1).nextBytes(plaintext);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(plaintext.length + 16);
+        buffer.put(plaintext).flip();
+        ByteBuffer output = buffer.duplicate().clear();
+        int written = cryptoUtils.encryptAES(buffer, output, iv, key);
+        assertEquals(plaintext.length + 16, written);
+
+        ByteBuffer ciphertext = output.flip();
+        ByteBuffer decrypted = ciphertext.duplicate().clear();
+        assertEquals(plaintext.length, cryptoUtils.decryptAES(ciphertext, decrypted, iv, key));
+
+        byte[] result = new byte[plaintext.length];
+        decrypted.flip().get(result);
+        assertArrayEquals(plaintext, result);
+    }
+
+    @Test
+    void byteArrayApiInteroperatesWithSplitTag() throws Exception {
+        SecretKey key = cryptoUtils.generateAesKey();
+        byte[] plaintext = "attack at dawn".getBytes();
+
+        EncryptedData encrypted = cryptoUtils.encryptAES(plaintext, key);
+        assertArrayEquals(plaintext,
+                cryptoUtils.decryptAES(encrypted.getCiphertext(), encrypted.getIv(), encrypted.getTag(), key));
+
+        byte[] badTag = encrypted.getTag();
+        badTag[0] ^= 1;
+        assertThrows(AEADBadTagException.class,
+                () -> cryptoUtils.decryptAES(encrypted.getCiphertext(), encrypted.getIv(), badTag, key));
+    }
+
+    @Test
+    void directBufferWithSeparateTag() throws Exception {
+        SecretKey key = cryptoUtils.generateAesKey();
+        byte[] plaintext = new byte[5_000];
+        new Random(2).nextBytes(plaintext);
+
+        EncryptedData encrypted = cryptoUtils.encryptAES(plaintext, key);
+        ByteBuffer ciphertext = ByteBuffer.allocateDirect(plaintext.length);
+        ciphertext.put(encrypted.getCiphertext()).flip();
+
+        byte[] result = new byte[plaintext.length];
+        assertEquals(plaintext.length,
+                cryptoUtils.decryptAES(ciphertext, encrypted.getTag(), ByteBuffer.wrap(result), encrypted.getIv(), key));
+        assertArrayEquals(plaintext, result);
+    }
+}
@@ -0,0 +1,104 @@
+package com.cryptovault.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileChannelSliceTests {
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+
+    @BeforeEach
+    void writeFile() throws IOException {
+        byte[] content = new byte[100];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        file = Files.write(directory.resolve("data"), content);
+    }
+
+    @Test
+    void readsStopAtTheEndOfTheSlice() throws IOException {
+        try (FileChannel slice = slice(10, 20)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            assertEquals(20, slice.read(buffer));
+            assertEquals(-1, slice.read(buffer));
+            assertEquals(20, slice.position());
+            assertEquals(20, slice.size());
+            for (int i = 0; i < 20; i++) {
+                assertEquals(10 + i, buffer.get(i));
+            }
+        }
+    }
+
+    @Test
+    void positionsAreRelativeToTheSlice() throws IOException {
+        try (FileChannel slice = slice(10, 20)) {
+            slice.position(15);
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            assertEquals(5, slice.read(buffer));
+            assertEquals(25, buffer.get(0));
+
+            ByteBuffer positional = ByteBuffer.allocate(3);
+            assertEquals(3, slice.read(positional, 2));
+            assertEquals(12, positional.get(0));
+            assertEquals(-1, slice.read(ByteBuffer.allocate(1), 20));
+        }
+    }
+
+    @Test
+    void streamsAndTransfersOnlyTheSlice() throws IOException {
+        try (FileChannel slice = slice(50, 30)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(30, slice.transferTo(0, Long.MAX_VALUE, Channels.newChannel(out)));
+            assertEquals(30, out.size());
+            assertEquals(50, out.toByteArray()[0]);
+            assertEquals(0, slice.transferTo(30, 10, Channels.newChannel(out)));
+        }
+        try (InputStream in = Channels.newInputStream(slice(90, 10))) {
+            byte[] tail = in.readAllBytes();
+            assertEquals(10, tail.length);
+            assertEquals(99, tail[9]);
+        }
+    }
+
+    @Test
+    void mapsWithinTheSliceOnly() throws IOException {
+        try (FileChannel slice = slice(40, 10)) {
+            assertEquals(40, slice.map(FileChannel.MapMode.READ_ONLY, 0, 10).get(0));
+            assertThrows(IllegalArgumentException.class, () -> slice.map(FileChannel.MapMode.READ_ONLY, 5, 10));
+        }
+    }
+
+    @Test
+    void isReadOnlyAndClosesTheUnderlyingChannel() throws IOException {
+        FileChannel underlying = FileChannel.open(file, StandardOpenOption.READ);
+        FileChannel slice = new FileChannelSlice(underlying, 0, 10);
+
+        assertThrows(NonWritableChannelException.class, () -> slice.write(ByteBuffer.allocate(1)));
+        assertThrows(NonWritableChannelException.class, () -> slice.truncate(0));
+
+        slice.close();
+        assertFalse(underlying.isOpen());
+    }
+
+    private FileChannel slice(long start, long length) throws IOException {
+        return new FileChannelSlice(FileChannel.open(file, StandardOpenOption.READ), start, length);
+    }
+}
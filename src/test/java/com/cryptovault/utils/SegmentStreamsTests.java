@@ -0,0 +1,128 @@
+package com.cryptovault.utils;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentStreamsTests {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    private final CryptoUtils cryptoUtils = new CryptoUtils();
+
+    @Test
+    void roundTripsAcrossSegmentBoundaries() throws Exception {
+        SecretKey key = cryptoUtils.generateAesKey();
+        byte[] iv = cryptoUtils.generateIv();
+
+        for (int size : new int[]{0, 1, SEGMENT_SIZE - 1, SEGMENT_SIZE, SEGMENT_SIZE + 1, 5 * SEGMENT_SIZE + 17}) {
+            byte[] plaintext = randomBytes(size);
+            byte[] ciphertext = encrypt(plaintext, key, iv);
+
+            int segments = Math.max(1, (size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+            assertEquals(size + segments * 16, ciphertext.length);
+            assertArrayEquals(plaintext, decrypt(ciphertext, key, iv));
+        }
+    }
+
+    @Test
+    void rejectsTamperedSegment() throws Exception {
+        SecretKey key = cryptoUtils.generateAesKey();
+        byte[] iv = cryptoUtils.generateIv();
+        byte[] ciphertext = encrypt(randomBytes(3 * SEGMENT_SIZE), key, iv);
+
+        ciphertext[SEGMENT_SIZE + 16 + 5] ^= 1;
+
+        assertThrows(IOException.class, () -> decrypt(ciphertext, key, iv));
+    }
+
+    @Test
+    void rejectsTruncationAtSegmentBoundary() throws Exception {
+        SecretKey key = cryptoUtils.generateAesKey();
+        byte[] iv = cryptoUtils.generateIv();
+        byte[] ciphertext = encrypt(randomBytes(3 * SEGMENT_SIZE + 10), key, iv);
+
+        byte[] truncated = Arrays.copyOf(ciphertext, 2 * (SEGMENT_SIZE + 16));
+
+        assertThrows(IOException.class, () -> decrypt(truncated, key, iv));
+    }
+
+    @Test
+    void decryptsFromArbitrarySegment() throws Exception {
+        SecretKey key = cryptoUtils.generateAesKey();
+        byte[] iv = cryptoUtils.generateIv();
+        byte[] plaintext = randomBytes(4 * SEGMENT_SIZE + 100);
+        byte[] ciphertext = encrypt(plaintext, key, iv);
+
+        int offset = 2 * (SEGMENT_SIZE + 16);
+        InputStream source = new ByteArrayInputStream(ciphertext, offset, ciphertext.length - offset);
+        try (InputStream in = cryptoUtils.decryptingStream(source, key, iv, SEGMENT_SIZE, 2)) {
+            assertArrayEquals(Arrays.copyOfRange(plaintext, 2 * SEGMENT_SIZE, plaintext.length), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void hashTreeChecksEverySegment() throws Exception {
+        SecretKey key = cryptoUtils.generateAesKey();
+        byte[] iv = cryptoUtils.generateIv();
+        byte[] plaintext = randomBytes(3 * SEGMENT_SIZE + 10);
+
+        SegmentHashTree hashTree;
+        byte[] ciphertext;
+        try (SegmentEncryptingInputStream in = cryptoUtils.encryptingStream(
+                new ByteArrayInputStream(plaintext), key, iv, SEGMENT_SIZE, true)) {
+            ciphertext = in.readAllBytes();
+            hashTree = in.getSegmentHashTree();
+        }
+        assertEquals(4, hashTree.getSegmentCount());
+        assertEquals(hashTree.rootHex(), SegmentHashTree.fromBase64(hashTree.toBase64()).rootHex());
+
+        try (InputStream in = cryptoUtils.decryptingStream(
+                new ByteArrayInputStream(ciphertext), key, iv, SEGMENT_SIZE, 0, hashTree)) {
+            assertArrayEquals(plaintext, in.readAllBytes());
+        }
+
+        // a tree over different plaintext rejects the first segment that differs
+        plaintext[2 * SEGMENT_SIZE] ^= 1;
+        SegmentHashTree otherTree;
+        try (SegmentEncryptingInputStream in = cryptoUtils.encryptingStream(
+                new ByteArrayInputStream(plaintext), key, iv, SEGMENT_SIZE, true)) {
+            in.readAllBytes();
+            otherTree = in.getSegmentHashTree();
+        }
+        assertNotEquals(hashTree.rootHex(), otherTree.rootHex());
+
+        IOException e = assertThrows(IOException.class, () -> {
+            try (InputStream in = cryptoUtils.decryptingStream(
+                    new ByteArrayInputStream(ciphertext), key, iv, SEGMENT_SIZE, 0, otherTree)) {
+                in.readAllBytes();
+            }
+        });
+        assertTrue(e.getMessage().contains("Segment 2"));
+    }
+
+    private byte[] encrypt(byte[] plaintext, SecretKey key, byte[] iv) throws Exception {
+        try (InputStream in = cryptoUtils.encryptingStream(new ByteArrayInputStream(plaintext), key, iv, SEGMENT_SIZE)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private byte[] decrypt(byte[] ciphertext, SecretKey key, byte[] iv) throws Exception {
+        try (InputStream in = cryptoUtils.decryptingStream(new ByteArrayInputStream(ciphertext), key, iv, SEGMENT_SIZE)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,137 @@
+package com.cryptovault.utils;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static com.cryptovault.utils.XlsxStreamWriter.number;
+import static com.cryptovault.utils.XlsxStreamWriter.text;
+import static org.junit.jupiter.api.Assertions.*;
+
+class XlsxStreamWriterTests {
+
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+    @Test
+    void writesAWorkbookThatParsesBackToTheSameValues() throws Exception {
+        String markup = "<b>Keys & \"documents\"</b> 'quoted'";
+        String nonAscii = "Zażółć gęślą jaźń — ключ 鍵 🔑";
+        String multiline = "first\tline\r\nsecond line\nthird";
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XlsxStreamWriter sheet = new XlsxStreamWriter(out, "Keys & <Documents>", 10, 20)) {
+            sheet.row(1, text(markup, XlsxStreamWriter.Style.TITLE));
+            sheet.row(2, text(nonAscii), null, number(42, XlsxStreamWriter.Style.RIGHT));
+            sheet.row(4, text("bell\u0007 null\u0000 escape\u001B end"), text(multiline), number(2.5, XlsxStreamWriter.Style.CELL));
+            sheet.row(5, text("lone \uD800 surrogate \uFFFE"), text(null, XlsxStreamWriter.Style.CELL));
+            sheet.merge("A1:C1");
+        }
+
+        Map<String, byte[]> parts = unzip(out.toByteArray());
+        assertTrue(parts.keySet().containsAll(
+                List.of("[Content_Types].xml", "_rels/.rels", "xl/workbook.xml",
+                        "xl/_rels/workbook.xml.rels", "xl/styles.xml", "xl/worksheets/sheet1.xml")));
+
+        Document contentTypes = parse(parts.get("[Content_Types].xml"));
+        assertEquals(3, contentTypes.getElementsByTagNameNS("*", "Override").getLength());
+
+        Element rootRelationship = (Element) parse(parts.get("_rels/.rels"))
+                .getElementsByTagNameNS(RELATIONSHIPS_NS, "Relationship").item(0);
+        assertEquals("xl/workbook.xml", rootRelationship.getAttribute("Target"));
+        NodeList workbookRelationships = parse(parts.get("xl/_rels/workbook.xml.rels"))
+                .getElementsByTagNameNS(RELATIONSHIPS_NS, "Relationship");
+        assertEquals("worksheets/sheet1.xml", ((Element) workbookRelationships.item(0)).getAttribute("Target"));
+        assertEquals("styles.xml", ((Element) workbookRelationships.item(1)).getAttribute("Target"));
+
+        Element sheetEntry = (Element) parse(parts.get("xl/workbook.xml")).getElementsByTagNameNS(MAIN_NS, "sheet").item(0);
+        assertEquals("Keys & <Documents>", sheetEntry.getAttribute("name"));
+
+        Document worksheet = parse(parts.get("xl/worksheets/sheet1.xml"));
+        Map<String, String> cells = cellValues(worksheet);
+        assertEquals(markup, cells.get("A1"));
+        assertEquals(nonAscii, cells.get("A2"));
+        assertFalse(cells.containsKey("B2"));
+        assertEquals("42", cells.get("C2"));
+        assertEquals("bell null escape end", cells.get("A4"));
+        assertEquals(multiline, cells.get("B4"));
+        assertEquals("2.5", cells.get("C4"));
+        assertEquals("lone  surrogate ", cells.get("A5"));
+        assertEquals("", cells.get("B5"));
+
+        Element title = cell(worksheet, "A1");
+        assertEquals(String.valueOf(XlsxStreamWriter.Style.TITLE.ordinal()), title.getAttribute("s"));
+        assertEquals("inlineStr", title.getAttribute("t"));
+        assertEquals("A1:C1", ((Element) worksheet.getElementsByTagNameNS(MAIN_NS, "mergeCell").item(0)).getAttribute("ref"));
+        assertEquals(2, worksheet.getElementsByTagNameNS(MAIN_NS, "col").getLength());
+    }
+
+    @Test
+    void rejectsRowsOutOfOrder() throws IOException {
+        try (XlsxStreamWriter sheet = new XlsxStreamWriter(new ByteArrayOutputStream(), "Sheet")) {
+            sheet.row(2, text("a"));
+            assertThrows(IllegalArgumentException.class, () -> sheet.row(2, text("b")));
+            assertThrows(IllegalArgumentException.class, () -> sheet.row(1, text("c")));
+        }
+    }
+
+    @Test
+    void namesColumnsLikeSpreadsheets() {
+        assertEquals("A", XlsxStreamWriter.columnName(0));
+        assertEquals("Z", XlsxStreamWriter.columnName(25));
+        assertEquals("AA", XlsxStreamWriter.columnName(26));
+        assertEquals("ZZ", XlsxStreamWriter.columnName(701));
+        assertEquals("AAA", XlsxStreamWriter.columnName(702));
+    }
+
+    private static Map<String, byte[]> unzip(byte[] workbook) throws IOException {
+        Map<String, byte[]> parts = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(workbook))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                parts.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        return parts;
+    }
+
+    private static Document parse(byte[] xml) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+    }
+
+    // cell reference -> text of its inline string or value; empty for a cell without either
+    private static Map<String, String> cellValues(Document worksheet) {
+        Map<String, String> values = new LinkedHashMap<>();
+        NodeList cells = worksheet.getElementsByTagNameNS(MAIN_NS, "c");
+        for (int i = 0; i < cells.getLength(); i++) {
+            Element cell = (Element) cells.item(i);
+            values.put(cell.getAttribute("r"), cell.getTextContent());
+        }
+        return values;
+    }
+
+    private static Element cell(Document worksheet, String ref) {
+        NodeList cells = worksheet.getElementsByTagNameNS(MAIN_NS, "c");
+        for (int i = 0; i < cells.getLength(); i++) {
+            Element cell = (Element) cells.item(i);
+            if (ref.equals(cell.getAttribute("r"))) {
+                return cell;
+            }
+        }
+        throw new AssertionError("No cell " + ref);
+    }
+}